@@ -0,0 +1,96 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.TileView;
+import com.squareup.otto.Bus;
+import com.squareup.otto.Subscribe;
+import com.squareup.otto.ThreadEnforcer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Per-event cost of a tap on its way to the game, through the dispatcher and through the
+ * Otto bus it replaced.  Prints nanoseconds per event; only delivery is asserted, as timings
+ * depend on the machine.  Run with {@code ./gradlew :app:benchmark}, never with the unit tests.
+ */
+public class TileEventDispatcherBenchmark {
+    static final int WARMUP_EVENTS = 200000;
+    static final int MEASURED_EVENTS = 2000000;
+
+    @Test
+    public void benchmarkTileActions() {
+        DispatcherSubscriber dispatcherSubscriber = new DispatcherSubscriber();
+        TileEventDispatcher dispatcher = new TileEventDispatcher();
+        dispatcher.register(dispatcherSubscriber);
+
+        BusSubscriber busSubscriber = new BusSubscriber();
+        Bus bus = new Bus(ThreadEnforcer.ANY);
+        bus.register(busSubscriber);
+
+        dispatch(dispatcher, WARMUP_EVENTS);
+        post(bus, WARMUP_EVENTS);
+
+        long start = System.nanoTime();
+        dispatch(dispatcher, MEASURED_EVENTS);
+        long dispatcherNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        post(bus, MEASURED_EVENTS);
+        long busNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Tile action: dispatcher %.1f ns/event, Otto bus %.1f ns/event",
+                (double) dispatcherNanos / MEASURED_EVENTS, (double) busNanos / MEASURED_EVENTS));
+
+        Assert.assertEquals(WARMUP_EVENTS + MEASURED_EVENTS, dispatcherSubscriber.mActionCount);
+        Assert.assertEquals(WARMUP_EVENTS + MEASURED_EVENTS, busSubscriber.mActionCount);
+    }
+
+    private static void dispatch(TileEventDispatcher dispatcher, int count) {
+        for(int i = 0; i < count; i++) {
+            dispatcher.dispatchTileAction(i & 15, (i >> 4) & 15, i & 1);
+        }
+    }
+
+    private static void post(Bus bus, int count) {
+        for(int i = 0; i < count; i++) {
+            bus.post(new TileActionEvent(i & 15, (i >> 4) & 15, i & 1));
+        }
+    }
+
+    static class DispatcherSubscriber implements TileEventDispatcher.Listener {
+        int mActionCount;
+
+        @Override
+        public void onTileCreated(TileView tileView) {
+        }
+
+        @Override
+        public void onTileAction(int xGridCoordinate, int yGridCoordinate, int action) {
+            mActionCount++;
+        }
+    }
+
+    /**
+     * Shaped like the event the tiles used to post, less the view itself.
+     */
+    static class TileActionEvent {
+        int mXGridCoordinate;
+        int mYGridCoordinate;
+        int mAction;
+
+        TileActionEvent(int xGridCoordinate, int yGridCoordinate, int action) {
+            mXGridCoordinate = xGridCoordinate;
+            mYGridCoordinate = yGridCoordinate;
+            mAction = action;
+        }
+    }
+
+    public static class BusSubscriber {
+        int mActionCount;
+
+        @Subscribe
+        public void onTileAction(TileActionEvent event) {
+            mActionCount++;
+        }
+    }
+}
@@ -2,19 +2,19 @@ package com.orangemako.minesweeper;
 
 import android.app.Application;
 
+import com.orangemako.minesweeper.game.TileEventDispatcher;
 import com.orangemako.minesweeper.utilities.NetworkUtils;
-import com.squareup.otto.Bus;
 
 public class MainApplication extends Application {
-    private static Bus gameBus;
+    private static TileEventDispatcher tileEventDispatcher;
     private static MainApplication mApplicationInstance;
 
-    public static Bus getGameBus() {
-        if(gameBus == null) {
-            gameBus = new Bus();
+    public static TileEventDispatcher getTileEventDispatcher() {
+        if(tileEventDispatcher == null) {
+            tileEventDispatcher = new TileEventDispatcher();
         }
 
-        return gameBus;
+        return tileEventDispatcher;
     }
 
     public static boolean isNetworkAvailable() {
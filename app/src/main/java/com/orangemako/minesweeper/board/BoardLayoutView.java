@@ -7,16 +7,26 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.GestureDetector;
+import android.view.HapticFeedbackConstants;
+import android.view.MotionEvent;
 import android.view.ViewGroup;
 
 import com.orangemako.minesweeper.MainApplication;
 import com.orangemako.minesweeper.R;
 import com.orangemako.minesweeper.exceptions.InitializationException;
 import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
-import com.orangemako.minesweeper.game.Game;
+import com.orangemako.minesweeper.game.TileEventDispatcher;
 import com.orangemako.minesweeper.utilities.GraphicsUtils;
-import com.squareup.otto.Bus;
 
+/**
+ * Lays out the board's tiles and handles every touch on them.
+ *
+ * One {@link GestureDetector} serves the whole board, and a touch is mapped to its square by
+ * dividing by the tile size, so input costs the same on any board.  A tap or long press on a
+ * square is dispatched as a click or long click, which chords an uncovered number.  Dragging
+ * flags every covered square the finger crosses, starting with the one it went down on.
+ */
 public class BoardLayoutView extends ViewGroup {
     static final int DEFAULT_LINE_COLOR = Color.BLACK;
 
@@ -33,20 +43,31 @@ public class BoardLayoutView extends ViewGroup {
     private int mBorderColor;
     private float mBorderStrokeWidth;
 
-    private Board mBoard;
-    private Bus mGameBus;
+    // Shape of the tiles laid out, with no topology until a board is set up.
+    private int mColumns;
+    private int mRows;
+    private Topology mTopology;
+    private TileEventDispatcher mTileEventDispatcher;
 
+    private GestureDetector mGestureDetector;
+
+    // Tile side length as laid out.
+    private int mInterval;
+
+    // Square the drag in progress last flagged, or -1.
+    private int mDragIndex = -1;
 
     public BoardLayoutView(Context context, AttributeSet attrs) {
         super(context, attrs);
 
-        mGameBus = MainApplication.getGameBus();
+        mTileEventDispatcher = MainApplication.getTileEventDispatcher();
 
         // Enable drawing for ViewGroup object
         setWillNotDraw(false);
 
         extractAttributes(attrs);
         setupDrawObjects();
+        setupGestureDetector();
     }
 
     private void extractAttributes(AttributeSet attrs) {
@@ -86,20 +107,125 @@ public class BoardLayoutView extends ViewGroup {
         mBorderPaint.setStrokeWidth(mBorderStrokeWidth);
     }
 
+    private void setupGestureDetector() {
+        mGestureDetector = new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent event) {
+                mDragIndex = -1;
+
+                // Claim the gesture, or the rest of it is never delivered.
+                return mTopology != null;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent event) {
+                return dispatchTileAction(getTileIndex(event.getX(), event.getY()), TileView.CLICK);
+            }
+
+            @Override
+            public void onLongPress(MotionEvent event) {
+                if(dispatchTileAction(getTileIndex(event.getX(), event.getY()), TileView.LONG_CLICK)) {
+                    performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+                }
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent down, MotionEvent move, float distanceX, float distanceY) {
+                if(mDragIndex < 0) {
+                    mDragIndex = getTileIndex(down.getX(), down.getY());
+
+                    if(!dispatchTileAction(mDragIndex, TileView.DRAG_FLAG)) {
+                        return false;
+                    }
+                }
+
+                int index = getTileIndex(move.getX(), move.getY());
+
+                if(index >= 0 && index != mDragIndex) {
+                    dragTo(index);
+                }
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return mGestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    /**
+     * Flags the squares on the line from the last square dragged over to {@code index}, as a
+     * fast drag can skip squares between two touch events.
+     */
+    private void dragTo(int index) {
+        int columns = mColumns;
+        int startX = mDragIndex % columns;
+        int startY = mDragIndex / columns;
+        int deltaX = index % columns - startX;
+        int deltaY = index / columns - startY;
+        int steps = Math.max(Math.abs(deltaX), Math.abs(deltaY));
+
+        for(int step = 1; step <= steps; step++) {
+            int x = startX + Math.round((float) deltaX * step / steps);
+            int y = startY + Math.round((float) deltaY * step / steps);
+
+            dispatchTileAction(y * columns + x, TileView.DRAG_FLAG);
+        }
+        mDragIndex = index;
+    }
+
+    /**
+     * @return whether {@code index} is a square, so the action was dispatched
+     */
+    private boolean dispatchTileAction(int index, int action) {
+        if(index < 0) {
+            return false;
+        }
+
+        int columns = mColumns;
+
+        mTileEventDispatcher.dispatchTileAction(index % columns, index / columns, action);
+        return true;
+    }
+
+    /**
+     * Square under a point in this view's coordinates, or -1 if there is none.
+     */
+    private int getTileIndex(float x, float y) {
+        if(mTopology == null || mInterval <= 0 || x < 0 || y < 0) {
+            return -1;
+        }
+
+        int row = (int) y / mInterval;
+        int offsetX = (int) x - getRowOffset(row, mInterval);
+
+        if(row >= mRows || offsetX < 0) {
+            return -1;
+        }
+
+        int column = offsetX / mInterval;
+
+        return column < mColumns ? row * mColumns + column : -1;
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
         int childCount = getChildCount();
 
-        int dimension = mBoard.getDimension();
-        int interval = Math.min(getMeasuredWidth(), getMeasuredHeight()) / dimension;
+        int columns = mColumns;
+        int interval = getInterval(getMeasuredWidth(), getMeasuredHeight());
+
+        mInterval = interval;
 
         // Place all tiles
         for(int i = 0; i < childCount; i++ ) {
             TileView tileView = (TileView) getChildAt(i);
 
-            int top = (i / dimension) * interval;
+            int row = i / columns;
+            int top = row * interval;
             int bottom = top + interval;
-            int left = (i % dimension) * interval;
+            int left = (i % columns) * interval + getRowOffset(row, interval);
             int right = left + interval;
 
             tileView.layout(left, top, right, bottom);
@@ -111,10 +237,41 @@ public class BoardLayoutView extends ViewGroup {
         int width = MeasureSpec.getSize(widthMeasureSpec);
         int height = MeasureSpec.getSize(heightMeasureSpec);
 
-        // Ensure the board is a square
-        int dimension = Math.min(width, height);
+        if(mTopology != null) {
+            // Keep tiles square and size the view to the board's aspect ratio.
+            int interval = getInterval(width, height);
+
+            setMeasuredDimension(interval * mColumns + getRowOffset(1, interval),
+                    interval * mRows);
+        }
+        else {
+            // Ensure the board is a square
+            int dimension = Math.min(width, height);
 
-        setMeasuredDimension(dimension, dimension);
+            setMeasuredDimension(dimension, dimension);
+        }
+    }
+
+    /**
+     * Side length of a single square tile that fits the board within the given bounds.
+     */
+    private int getInterval(int width, int height) {
+        if(isHex()) {
+            // Shifted rows stick out half a tile to the right.
+            return Math.min(width * 2 / (mColumns * 2 + 1), height / mRows);
+        }
+        return Math.min(width / mColumns, height / mRows);
+    }
+
+    /**
+     * Hex boards are drawn as offset rows, with odd rows shifted half a tile right.
+     */
+    private int getRowOffset(int row, int interval) {
+        return isHex() && mRows > 1 && (row & 1) == 1 ? interval / 2 : 0;
+    }
+
+    private boolean isHex() {
+        return mTopology == Topology.HEX;
     }
 
     @Override
@@ -131,9 +288,10 @@ public class BoardLayoutView extends ViewGroup {
     }
 
     private void drawGridLines(int width, int height, Canvas canvas) {
-        if(mBoard != null) {
-            int dimension = mBoard.getDimension();
-            int interval = height / dimension;
+        if(mTopology != null) {
+            int columns = mColumns;
+            int rows = mRows;
+            int interval = getInterval(width, height);
 
             float startX = 0;
             float startY;
@@ -141,48 +299,70 @@ public class BoardLayoutView extends ViewGroup {
             float endY;
 
             // Horizontal lines
-            for(int i = 1; i < dimension; i++) {
+            for(int i = 1; i < rows; i++) {
                 startY = endY = interval * i;
                 canvas.drawLine(startX, startY, endX, endY, mGridLinesPaint);
             }
 
-            startY = 0;
-            endY = height;
+            // Vertical lines, drawn row by row since hex rows are offset from each other
+            for(int j = 0; j < rows; j++) {
+                int rowOffset = getRowOffset(j, interval);
 
-            // Vertical lines
-            for(int i = 1; i < dimension; i++) {
-                startX = endX = interval * i;
-                canvas.drawLine(startX, startY, endX, endY, mGridLinesPaint);
+                startY = interval * j;
+                endY = startY + interval;
+
+                for(int i = 0; i <= columns; i++) {
+                    startX = endX = interval * i + rowOffset;
+
+                    if(startX > 0 && startX < width) {
+                        canvas.drawLine(startX, startY, endX, endY, mGridLinesPaint);
+                    }
+                }
             }
         }
     }
 
-    public void setupBoard(Board board) throws InitializationException, InvalidArgumentException {
-        this.mBoard = board;
+    public void setupBoard(MineField board) throws InitializationException, InvalidArgumentException {
+        setupBoard(board.getWidth(), board.getHeight(), board.getTopology());
+    }
+
+    /**
+     * Lays out {@code columns} by {@code rows} tiles, which may show just a window onto a
+     * larger board.  Tiles are addressed by their position in the window.
+     */
+    public void setupBoard(int columns, int rows, Topology topology)
+            throws InitializationException, InvalidArgumentException {
+        mColumns = columns;
+        mRows = rows;
+        mTopology = topology;
 
         // Clear old tiles
         this.removeAllViews();
 
         // Create new set of tiles
         createTileViews();
+
+        // Board shape may have changed.
+        requestLayout();
     }
 
     private void createTileViews() throws InitializationException, InvalidArgumentException {
-        int dimension = mBoard.getDimension();
+        int columns = mColumns;
+        int rows = mRows;
 
-        for(int i = 0; i < dimension; i++) {
-            for(int j = 0; j < dimension; j++) {
+        for(int i = 0; i < rows; i++) {
+            for(int j = 0; j < columns; j++) {
                 TileView tileView = new TileView(getContext(), j, i);
 
                 addView(tileView);
 
                 // Notify the game that a new tile has been created.
-                mGameBus.post(new Game.TileViewCreatedEvent(tileView));
+                mTileEventDispatcher.dispatchTileCreated(tileView);
             }
         }
 
-        if(getChildCount() != Math.pow(dimension, 2)) {
-            Log.e(BoardLayoutView.class.getName(), "Tile count must be equal to dimension ^ 2.");
+        if(getChildCount() != (long) columns * rows) {
+            Log.e(BoardLayoutView.class.getName(), "Tile count must be equal to width * height.");
             throw new InitializationException();
         }
     }
@@ -7,35 +7,42 @@ import android.graphics.drawable.LayerDrawable;
 import android.graphics.drawable.LevelListDrawable;
 import android.view.View;
 
-import com.orangemako.minesweeper.MainApplication;
 import com.orangemako.minesweeper.R;
 import com.orangemako.minesweeper.drawable.BeveledTileDrawable;
 import com.orangemako.minesweeper.drawable.ConcentricCirclesDrawable;
 import com.orangemako.minesweeper.drawable.TextDrawable;
 import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
-import com.orangemako.minesweeper.game.Game;
+import com.orangemako.minesweeper.game.GameEngine;
+import com.orangemako.minesweeper.game.Replay;
 import com.orangemako.minesweeper.utilities.GraphicsUtils;
-import com.squareup.otto.Bus;
 
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * A single square of the board.  Tiles only draw; touches are hit-tested by the
+ * {@link BoardLayoutView} that holds them.
+ */
 public class TileView extends View {
     // Board Square states
-    public static final int COVERED = 0;
-    public static final int FLAGGED_AS_MINE = 1;
-    public static final int UNCOVERED = 2;
+    public static final int COVERED = GameEngine.COVERED;
+    public static final int FLAGGED_AS_MINE = GameEngine.FLAGGED_AS_MINE;
+    public static final int UNCOVERED = GameEngine.UNCOVERED;
 
     // User gestures
-    public static final int CLICK = 0;
-    public static final int LONG_CLICK = 1;
+    public static final int CLICK = Replay.CLICK;
+    public static final int LONG_CLICK = Replay.LONG_CLICK;
+
+    // Flags the square without ever unflagging it.  Kept clear of the replay's gestures, which
+    // fit in two bits, as the engine records it as the click it plays back as.
+    public static final int DRAG_FLAG = 4;
 
     private LevelListDrawable mDrawableContainer;
+    private Drawable mCoveredDrawable;
+    private Drawable mFlaggedMineDrawable;
     private int mXGridCoordinate;
     private int mYGridCoordinate;
 
-    private Bus mGameBus;
-
     static Map<Integer, Integer> sAdjacentMineCountToColorMap = new HashMap<>();
 
     // Colors for adjacent mines count
@@ -60,41 +67,33 @@ public class TileView extends View {
     }
 
     private void init() throws InvalidArgumentException {
-        mGameBus = MainApplication.getGameBus();
-
         setupDrawableBackgrounds();
-        setupListeners();
     }
 
-    private void setupListeners() {
-        setOnClickListener(new OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                // Notify the game that the user has performed an action on this tile.
-                mGameBus.post(new Game.TileViewActionEvent(TileView.this, CLICK));
-            }
-        });
-
-        setOnLongClickListener(new OnLongClickListener() {
-            @Override
-            public boolean onLongClick(View view) {
-                // Notify the game that the user has performed an action on this tile.
-                mGameBus.post(new Game.TileViewActionEvent(TileView.this, LONG_CLICK));
+    private void setupDrawableBackgrounds() throws InvalidArgumentException {
+        mCoveredDrawable = setupCoveredTile();
+        mFlaggedMineDrawable = new LayerDrawable(new Drawable[]{mCoveredDrawable, new ConcentricCirclesDrawable()});
 
-                // Return true to consume event.
-                return true;
-            }
-        });
+        setupDrawableContainer(null, COVERED);
     }
 
-    private void setupDrawableBackgrounds() throws InvalidArgumentException {
-        Drawable coveredTile = setupCoveredTile();
-        LayerDrawable flaggedMineDrawable = new LayerDrawable(new Drawable[]{coveredTile, new ConcentricCirclesDrawable()});
-
+    /**
+     * Replaces the background with one showing {@code uncoveredDrawable} for uncovered squares.
+     * A level list shows the first level that matches, so the uncovered drawable cannot simply
+     * be added again when the tile comes to show another square.
+     */
+    private void setupDrawableContainer(Drawable uncoveredDrawable, int state) {
         mDrawableContainer = new LevelListDrawable();
-        mDrawableContainer.addLevel(0, COVERED, coveredTile);
-        mDrawableContainer.addLevel(0, FLAGGED_AS_MINE, flaggedMineDrawable);
+        mDrawableContainer.addLevel(0, COVERED, mCoveredDrawable);
+        mDrawableContainer.addLevel(0, FLAGGED_AS_MINE, mFlaggedMineDrawable);
+
+        if(uncoveredDrawable != null) {
+            mDrawableContainer.addLevel(0, UNCOVERED, uncoveredDrawable);
+        }
+        mDrawableContainer.setLevel(state);
 
+        // Redraws the tile even if its state is unchanged, as an uncovered tile may now show
+        // another square's number.
         setBackground(mDrawableContainer);
     }
 
@@ -111,28 +110,26 @@ public class TileView extends View {
         return new BeveledTileDrawable(tileColors, null);
     }
 
-    public void setupUncoveredTileDrawable(BoardSquare boardSquare) {
+    public void setupUncoveredTileDrawable(boolean containsMine, int adjacentMinesCount) {
         Drawable uncoveredDrawable;
 
-        if(boardSquare != null && boardSquare.doesContainMine()) {
+        if(containsMine) {
             uncoveredDrawable = new ConcentricCirclesDrawable(new int[]{Color.RED, Color.BLACK}, 0.50f);
         }
         else {
             String adjacentMineCountText;
             int textColor = 0;
 
-            if(boardSquare == null) {
+            if(adjacentMinesCount == 0) {
                 adjacentMineCountText = "";
             }
             else {
-                int adjacentMinesCount = boardSquare.getAdjacentMinesCount();
-
                 textColor = sAdjacentMineCountToColorMap.get(adjacentMinesCount);
                 adjacentMineCountText = String.valueOf(adjacentMinesCount);
             }
             uncoveredDrawable = new TextDrawable(adjacentMineCountText, textColor);
         }
-        mDrawableContainer.addLevel(0, UNCOVERED, uncoveredDrawable);
+        setupDrawableContainer(uncoveredDrawable, getState());
     }
 
     public int getXGridCoordinate() {
@@ -1,281 +1,574 @@
 package com.orangemako.minesweeper.game;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.orangemako.minesweeper.MainApplication;
 import com.orangemako.minesweeper.board.Board;
-import com.orangemako.minesweeper.board.BoardSquare;
+import com.orangemako.minesweeper.board.MineField;
 import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
 import com.orangemako.minesweeper.board.TileView;
-import com.squareup.otto.Subscribe;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connects a {@link GameEngine} to the tile views.  Gestures are turned into engine moves and
+ * the squares each move changes are handed to a {@link TileUpdateScheduler}, which updates
+ * their views within a per-frame budget.
+ *
+ * When the logic runs on a {@link GameThread}, moves are posted to it instead and the views
+ * follow the squares its snapshot lists as changed, applied on the main thread after each
+ * publish.
+ *
+ * Boards too large to show whole, such as an {@link com.orangemako.minesweeper.board.EndlessBoard},
+ * are shown through a window of tiles that recenters on moves made near its edge.
+ */
+public class Game implements GameEngine.Listener, TileEventDispatcher.Listener {
+    static final String TAG = Game.class.getName();
+
+    // Squares from the window's edge within which a move recenters the window.
+    static final int FOLLOW_MARGIN = 2;
 
-public class Game {
     private GameManager mGameManager;
 
     // Board state
-    private Board mBoard;
-    private BoardSquare[][] mBoardSquaresGrid;
+    private MineField mBoard;
     private TileView[][] mTileViewsGrid;
+    private TileUpdateScheduler mTileUpdates;
+
+    // Window of the board shown by the tiles.  The whole board unless it is too large to show.
+    private int mColumns;
+    private int mRows;
+    private int mOriginX;
+    private int mOriginY;
+
+    // Square of the last gesture, where the views' updates spread out from.
+    private int mLastActionIndex;
+
+    // Exactly one of these runs the game.
+    private GameEngine mEngine;
+    private GameThread mGameThread;
+    private ReplayRecorder mReplayRecorder;
+
+    // Logic thread state, as last applied to the views.
+    private Handler mMainHandler;
+    private AtomicBoolean mIsSnapshotPending = new AtomicBoolean(false);
+    private boolean mIsBoardGenerated;
+    private int mMineFlagsRemainingCount;
+    private boolean mIsGameFinished;
 
-    // Game state
-    private boolean mIsGameFinished = false;
-    private long mStartTime;
-    private long mElapsedTime = 0;
+    private Game(Builder builder) throws InitializationException {
+        mBoard = builder.mBoard;
+        mGameManager = builder.mGameManager;
+        mReplayRecorder = builder.mReplayRecorder;
 
-    private int mMineFlagsRemainingCount;
+        mColumns = builder.mColumns > 0 ? builder.mColumns : mBoard.getWidth();
+        mRows = builder.mRows > 0 ? builder.mRows : mBoard.getHeight();
+        mOriginX = (mBoard.getWidth() - mColumns) / 2;
+        mOriginY = (mBoard.getHeight() - mRows) / 2;
 
-    public Game(GameManager gameManager, Board board) throws InitializationException {
-        if(gameManager != null && board != null) {
-            mBoard = board;
-            mBoardSquaresGrid = board.getBoardGrid();
-            mGameManager = gameManager;
+        init(builder.mIsLogicThreaded, builder.mSavedGame, builder.mJournal);
+    }
 
-            init();
+    private void init(boolean isLogicThreaded, SavedGame savedGame, GameJournal journal)
+            throws InitializationException {
+        mTileViewsGrid = new TileView[mRows][mColumns];
+        mTileUpdates = new TileUpdateScheduler(mTileViewsGrid);
+
+        if(isLogicThreaded) {
+            initLogicThread(savedGame, journal);
         }
         else {
-            Log.e(this.getClass().getName(), "Game manager and board square grid required.");
+            mEngine = new GameEngine(mBoard, this);
+            mEngine.setReplayRecorder(mReplayRecorder);
 
-            throw new InitializationException();
+            if(savedGame != null) {
+                restore(savedGame);
+            }
+            if(journal != null) {
+                journal.start((Board) mBoard, mEngine);
+            }
         }
+
+        // Register to receive the board's tile events
+        MainApplication.getTileEventDispatcher().register(this);
+
+        // Publish initial stats
+        mGameManager.publishFlagsRemainingCount(getMineFlagsRemainingCount());
+        mGameManager.publishElapsedTime(getElapsedTime());
     }
 
-    private void init() {
-        int dimension = mBoard.getDimension();
+    private void initLogicThread(SavedGame savedGame, GameJournal journal) throws InitializationException {
+        mMainHandler = new Handler(Looper.getMainLooper());
 
-        mMineFlagsRemainingCount = mBoard.getNumMines();
-        mTileViewsGrid = new TileView[dimension][dimension];
+        mGameThread = new GameThread(mBoard, new GameThread.Listener() {
+            @Override
+            public void onSnapshotPublished() {
+                // Publishes made before the main thread catches up are applied together.
+                if(mIsSnapshotPending.compareAndSet(false, true)) {
+                    mMainHandler.post(mApplySnapshotRunnable);
+                }
+            }
 
-        // Register to receive game state change events
-        MainApplication.getGameBus().register(this);
+            @Override
+            public void onMoveFailed(InitializationException e) {
+                Log.e(TAG, "Unable to generate board.", e);
+            }
+        }, mReplayRecorder);
 
-        // Publish initial stats
-        mGameManager.publishFlagsRemainingCount(mMineFlagsRemainingCount);
-        mGameManager.publishElapsedTime(mElapsedTime);
-    }
+        if(savedGame != null) {
+            restore(savedGame);
+        }
+        if(journal != null) {
+            mGameThread.startJournal(journal, (Board) mBoard);
+        }
 
-    public void startTimer() {
-        mStartTime = System.currentTimeMillis();
-    }
+        // Nothing has been published yet, so the views start from the initial snapshot.
+        GameSnapshot snapshot = mGameThread.getSnapshot();
+        mIsBoardGenerated = snapshot.isBoardGenerated();
+        mMineFlagsRemainingCount = snapshot.getMineFlagsRemainingCount();
+        mIsGameFinished = snapshot.isGameFinished();
 
-    public void stopTimer() {
-        if(mStartTime > 0) {
-            mElapsedTime += System.currentTimeMillis() - mStartTime;
+        // Tiles read their starting states as they are created.
+        snapshot.clearChanges();
+
+        mGameThread.start();
+    }
 
-            // Reset timer
-            mStartTime = 0;
+    private void restore(SavedGame savedGame) throws InitializationException {
+        try {
+            if(mGameThread != null) {
+                mGameThread.restore(savedGame);
+            }
+            else {
+                mEngine.restore(savedGame);
+            }
+        }
+        catch (InvalidArgumentException e) {
+            throw new InitializationException("Unable to restore saved game.", e);
         }
     }
 
-    // Called from the Game Manager
-    public void finishGame() {
-        boolean didWin = true;
+    /**
+     * Encodes the game so far, to be resumed with {@link SavedGame#decode}.
+     *
+     * @param board the board this game was created with
+     */
+    public byte[] save(Board board) throws InvalidArgumentException {
+        if(mGameThread != null) {
+            return SavedGame.encode(board, mGameThread.getSnapshot());
+        }
+        return SavedGame.encode(board, mEngine);
+    }
 
-        int dimension = mBoardSquaresGrid.length;
+    private Runnable mApplySnapshotRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mIsSnapshotPending.set(false);
+            applySnapshot(mGameThread.getSnapshot());
+        }
+    };
+
+    /**
+     * Brings the views and the published stats up to date with the logic thread's latest snapshot.
+     * Snapshots taken for the stats in between keep their changes listed until they are applied here.
+     */
+    private void applySnapshot(GameSnapshot snapshot) {
+        // The snapshot was published after generation, so the board's mines are visible here.
+        if(snapshot.isBoardGenerated() && !mIsBoardGenerated) {
+            mIsBoardGenerated = true;
+            setupUncoveredTileDrawables();
+        }
 
-        for(int i = 0; i < dimension; i++) {
-            for(int j = 0; j < dimension; j++) {
-                TileView tileView = mTileViewsGrid[i][j];
-                BoardSquare boardSquare = mBoardSquaresGrid[i][j];
+        if(snapshot.isEveryStateChanged()) {
+            for(int index = 0; index < snapshot.getCellCount(); index++) {
+                if(mTileUpdates.getState(index) != snapshot.getState(index)) {
+                    mTileUpdates.set(index, snapshot.getState(index));
+                }
+            }
+        }
+        else {
+            for(int i = 0; i < snapshot.getChangedCount(); i++) {
+                int index = snapshot.getChangedSquare(i);
+                mTileUpdates.set(index, snapshot.getState(index));
+            }
+        }
+        snapshot.clearChanges();
+        mTileUpdates.commit(mLastActionIndex);
 
-                int state = tileView.getState();
-                boolean doesContainMine = boardSquare == null ? false : boardSquare.doesContainMine();
+        if(snapshot.getMineFlagsRemainingCount() != mMineFlagsRemainingCount) {
+            mMineFlagsRemainingCount = snapshot.getMineFlagsRemainingCount();
+            mGameManager.publishFlagsRemainingCount(mMineFlagsRemainingCount);
+        }
 
-                if(state == TileView.COVERED) {
-                    // User did not place a flag over a mine.
-                    if(doesContainMine) {
-                        didWin = false;
-                    }
+        if(snapshot.isGameFinished() != mIsGameFinished) {
+            mIsGameFinished = snapshot.isGameFinished();
 
-                    // Uncover all tiles without flags.
-                    tileView.setState(TileView.UNCOVERED);
-                }
-                else if(state == TileView.FLAGGED_AS_MINE) {
-                    if(!doesContainMine) {
-                        // Uncover flags not covering mines.
-                        tileView.setState(TileView.UNCOVERED);
-                    }
-                }
+            if(mIsGameFinished) {
+                publishGameFinished(snapshot.didWin());
+            }
+            else {
+                mGameManager.publishGameResumed();
             }
         }
-        publishGameResult(didWin);
     }
 
-    private void publishGameResult(boolean didWin) {
-        if(!mIsGameFinished) {
-            mIsGameFinished = true;
-            mGameManager.publishGameFinished();
+    public void startTimer() {
+        if(mGameThread != null) {
+            mGameThread.startTimer();
+        }
+        else {
+            mEngine.startTimer();
+        }
+    }
 
-            if (didWin) {
-                mGameManager.publishWin();
-            } else {
-                mGameManager.publishLoss();
-            }
+    public void stopTimer() {
+        if(mGameThread != null) {
+            mGameThread.stopTimer();
+        }
+        else {
+            mEngine.stopTimer();
         }
     }
 
-    public void uncoverAdjacentBlankTileViews(TileView tileView) {
-        int x = tileView.getXGridCoordinate();
-        int y = tileView.getYGridCoordinate();
+    // Called from the Game Manager
+    public void finishGame() {
+        if(mGameThread != null) {
+            mGameThread.finish();
+            return;
+        }
+
+        try {
+            mEngine.finish();
+        }
+        catch (InitializationException e) {
+            Log.e(TAG, "Unable to generate board.", e);
+        }
+    }
+
+    public void undo() {
+        if(mGameThread != null) {
+            mGameThread.undo();
+        }
+        else {
+            mEngine.undo();
+        }
+    }
+
+    public void redo() {
+        if(mGameThread != null) {
+            mGameThread.redo();
+        }
+        else {
+            mEngine.redo();
+        }
+    }
+
+    /**
+     * Stops the logic thread, if any.  The game takes no more moves afterwards.
+     */
+    public void quit() {
+        mTileUpdates.cancel();
 
-        BoardSquare boardSquare = mBoardSquaresGrid[y][x];
+        if(mGameThread != null) {
+            mGameThread.quit();
+            mMainHandler.removeCallbacks(mApplySnapshotRunnable);
+        }
+    }
 
-        // A null board square indicates no adjacent mines.
-        if(boardSquare == null) {
-            // Iterative BFS search
-            Set<TileView> visited = new HashSet<>();
-            Stack<TileView> queue = new Stack<>();
+    @Override
+    public void onBoardChanged(BoardDelta delta) {
+        if(delta.isBoardGenerated()) {
+            setupUncoveredTileDrawables();
+        }
 
-            visited.add(tileView);
-            queue.add(tileView);
+        long width = mBoard.getWidth();
 
-            int dimension = mBoardSquaresGrid.length;
+        for(int i = 0; i < delta.getChangedCount(); i++) {
+            long square = delta.getChangedSquare(i);
+            int x = (int) (square % width) - mOriginX;
+            int y = (int) (square / width) - mOriginY;
 
-            while(!queue.empty()) {
-                TileView currentTile = queue.pop();
+            // Squares outside the window have no tile.  They are shown if the window reaches them.
+            if(x >= 0 && y >= 0 && x < mColumns && y < mRows) {
+                mTileUpdates.set(y * mColumns + x, delta.getChangedState(i));
+            }
+        }
+        mTileUpdates.commit(mLastActionIndex);
 
-                x = currentTile.getXGridCoordinate();
-                y = currentTile.getYGridCoordinate();
+        if(delta.hasFlagsRemainingChanged()) {
+            mGameManager.publishFlagsRemainingCount(delta.getMineFlagsRemainingCount());
+        }
 
-                int startingX = Math.max(0, x - 1);
-                int startingY = Math.max(0, y - 1);
+        switch(delta.getResult()) {
+            case BoardDelta.WON:
+                publishGameFinished(true);
+                break;
+            case BoardDelta.LOST:
+                publishGameFinished(false);
+                break;
+            case BoardDelta.RESUMED:
+                mGameManager.publishGameResumed();
+                break;
+        }
+    }
 
-                for(int i = startingX; i < dimension && i <= x + 1; i++) {
-                    for (int j = startingY; j < dimension && j <= y + 1; j++) {
-                        TileView adjacentTile = mTileViewsGrid[j][i];
-                        BoardSquare adjacentBoardSquare = mBoardSquaresGrid[j][i];
+    private void publishGameFinished(boolean didWin) {
+        mGameManager.publishGameFinished();
 
-                        boolean added = visited.add(adjacentTile);
+        if (didWin) {
+            mGameManager.publishWin();
+        } else {
+            mGameManager.publishLoss();
+        }
+    }
 
-                        if(added && adjacentBoardSquare == null) {
-                            adjacentTile.setState(TileView.UNCOVERED);
-                            queue.add(adjacentTile);
-                        }
-                    }
-                }
+    private void setupUncoveredTileDrawables() {
+        for(TileView[] row : mTileViewsGrid) {
+            for(TileView tileView : row) {
+                setupUncoveredTileDrawable(tileView);
             }
         }
     }
 
-    public void unregisterFromEventBus() {
-        MainApplication.getGameBus().unregister(this);
+    private void setupUncoveredTileDrawable(TileView tileView) {
+        int x = mOriginX + tileView.getXGridCoordinate();
+        int y = mOriginY + tileView.getYGridCoordinate();
+
+        tileView.setupUncoveredTileDrawable(mBoard.isMine(x, y), mBoard.adjacentCount(x, y));
     }
 
-    public long getElapsedTime() {
-        // If the timer has been started, then add the time since it was started
-        // to the saved elapsed time.
-        long additionalRealTime = 0;
+    /**
+     * The game as played so far, or null if it is not being recorded.
+     */
+    public Replay getReplay() {
+        return mReplayRecorder != null ? mReplayRecorder.getReplay() : null;
+    }
 
-        if(mStartTime > 0) {
-            additionalRealTime = System.currentTimeMillis() - mStartTime;
+    public void unregisterFromEventDispatcher() {
+        MainApplication.getTileEventDispatcher().unregister(this);
+    }
+
+    public long getElapsedTime() {
+        if(mGameThread != null) {
+            return mGameThread.getSnapshot().getElapsedTime();
         }
-        return mElapsedTime + additionalRealTime;
+        return mEngine.getElapsedTime();
     }
 
     public boolean isGameFinished() {
-        return mIsGameFinished;
+        if(mGameThread != null) {
+            return mGameThread.getSnapshot().isGameFinished();
+        }
+        return mEngine.isGameFinished();
+    }
+
+    public boolean didWin() {
+        if(mGameThread != null) {
+            return mGameThread.getSnapshot().didWin();
+        }
+        return mEngine.didWin();
     }
 
     public int getMineFlagsRemainingCount() {
-        return mMineFlagsRemainingCount;
+        if(mGameThread != null) {
+            return mGameThread.getSnapshot().getMineFlagsRemainingCount();
+        }
+        return mEngine.getMineFlagsRemainingCount();
     }
 
-    @Subscribe
-    public void onTileCreated(TileViewCreatedEvent event) {
-        TileView tileView = event.mTileView;
+    private boolean isBoardGenerated() {
+        // The logic thread generates the board, so only trust what a snapshot has shown.
+        return mGameThread != null ? mIsBoardGenerated : mBoard.isGenerated();
+    }
 
+    @Override
+    public void onTileCreated(TileView tileView) {
         int x = tileView.getXGridCoordinate();
         int y = tileView.getYGridCoordinate();
 
         mTileViewsGrid[y][x] = tileView;
 
-        // Set the uncovered graphic for the TileView.
-        tileView.setupUncoveredTileDrawable(mBoardSquaresGrid[y][x]);
-    }
+        // Set the uncovered graphic for the TileView.  Deferred boards set up
+        // all graphics at once when they are generated.
+        if(isBoardGenerated()) {
+            setupUncoveredTileDrawable(tileView);
+        }
 
-    public static class TileViewCreatedEvent {
-        TileView mTileView;
+        // Restored games start with squares already played.  Threaded games always show the whole board.
+        int state = mGameThread != null ? mGameThread.getSnapshot().getState(y * mColumns + x)
+                : mEngine.getState(mOriginX + x, mOriginY + y);
 
-        public TileViewCreatedEvent(TileView tileView) {
-            mTileView = tileView;
+        if(state != tileView.getState()) {
+            tileView.setState(state);
         }
     }
 
-    @Subscribe
-    public void onTileViewAction(TileViewActionEvent event) {
-        if(!mIsGameFinished) {
-            boolean isAllowed = false;
-
-            int action = event.mAction;
-            TileView tileView = event.mTileView;
-
-            int state = -1;
-
-            switch (action) {
-                // Toggling mine flag on a tile
-                case TileView.CLICK:
-                    switch(tileView.getState()) {
-                        case TileView.COVERED:
-                            // Add a flag
-                            if(mMineFlagsRemainingCount > 0) {
-                                state = TileView.FLAGGED_AS_MINE;
-                                isAllowed = true;
-
-                                mGameManager.publishFlagsRemainingCount(--mMineFlagsRemainingCount);
-                            }
-                            break;
-                        case TileView.FLAGGED_AS_MINE:
-                            // Remove a flag
-                            state = TileView.COVERED;
-                            isAllowed = true;
-
-                            mGameManager.publishFlagsRemainingCount(++mMineFlagsRemainingCount);
-                            break;
-                    }
-                    break;
+    @Override
+    public void onTileAction(int tileX, int tileY, int action) {
+        mLastActionIndex = tileY * mColumns + tileX;
+
+        int x = mOriginX + tileX;
+        int y = mOriginY + tileY;
 
-                // Uncovering a tile
-                case TileView.LONG_CLICK:
-                    if(tileView.getState() == TileView.COVERED) {
-                        // Even if a player loses, uncover the tile.
-                        state = TileView.UNCOVERED;
-                        isAllowed = true;
-
-                        // Get corresponding board square
-                        int x = tileView.getXGridCoordinate();
-                        int y = tileView.getYGridCoordinate();
-                        BoardSquare boardSquare = mBoardSquaresGrid[y][x];
-
-                        // null BoardSquare means no adjacent mines.
-                        if(boardSquare == null) {
-                            uncoverAdjacentBlankTileViews(tileView);
-                        }
-                        else {
-                            // If tile is over a square that contains a mine, player loses.
-                            if(boardSquare.doesContainMine()) {
-                                publishGameResult(false);
-                            }
-                        }
-                    }
+        // Either gesture on an uncovered number chords it.
+        switch (action) {
+            // Toggling mine flag on a tile
+            case TileView.CLICK:
+                if(mGameThread != null) {
+                    mGameThread.toggleFlagOrChord(x, y);
+                }
+                else {
+                    mEngine.toggleFlagOrChord(x, y);
+                }
+                break;
+
+            // Flagging a tile dragged over, never unflagging it
+            case TileView.DRAG_FLAG:
+                if(mGameThread != null) {
+                    mGameThread.flag(x, y);
+                }
+                else {
+                    mEngine.flag(x, y);
+                }
+                break;
+
+            // Uncovering a tile
+            case TileView.LONG_CLICK:
+                if(mGameThread != null) {
+                    mGameThread.uncoverOrChord(x, y);
                     break;
-            }
+                }
 
-            if (isAllowed) {
-                tileView.setState(state);
+                try {
+                    mEngine.uncoverOrChord(x, y);
+                }
+                catch (InitializationException e) {
+                    Log.e(TAG, "Unable to generate board.", e);
+                }
+                break;
+        }
+
+        // Recentering mid-drag would slide squares out from under the finger, so only taps
+        // and long presses move the window.
+        if(action != TileView.DRAG_FLAG) {
+            followMove(x, y);
+        }
+    }
+
+    /**
+     * Recenters the window on a move made near its edge, so the player can carry on in any
+     * direction.  Does nothing while the whole board is shown.
+     */
+    private void followMove(int x, int y) {
+        int tileX = x - mOriginX;
+        int tileY = y - mOriginY;
+
+        if((mColumns == mBoard.getWidth() && mRows == mBoard.getHeight())
+                || (tileX >= FOLLOW_MARGIN && tileY >= FOLLOW_MARGIN
+                    && tileX < mColumns - FOLLOW_MARGIN && tileY < mRows - FOLLOW_MARGIN)) {
+            return;
+        }
+
+        mOriginX = Math.max(0, Math.min(mBoard.getWidth() - mColumns, x - mColumns / 2));
+        mOriginY = Math.max(0, Math.min(mBoard.getHeight() - mRows, y - mRows / 2));
+        mLastActionIndex = (y - mOriginY) * mColumns + x - mOriginX;
+
+        // Every tile now shows a different square.
+        for(TileView[] row : mTileViewsGrid) {
+            for(TileView tileView : row) {
+                int column = tileView.getXGridCoordinate();
+                int line = tileView.getYGridCoordinate();
+
+                if(mBoard.isGenerated()) {
+                    setupUncoveredTileDrawable(tileView);
+                }
+                mTileUpdates.set(line * mColumns + column, mEngine.getState(mOriginX + column, mOriginY + line));
             }
         }
+        mTileUpdates.commit(mLastActionIndex);
     }
 
-    public static class TileViewActionEvent {
-        TileView mTileView;
-        int mAction;
+    public static class Builder {
+        GameManager mGameManager;
+        MineField mBoard;
+        boolean mIsLogicThreaded = false;
+        ReplayRecorder mReplayRecorder;
+        SavedGame mSavedGame;
+        GameJournal mJournal;
+        int mColumns;
+        int mRows;
+
+        public Builder gameManager(GameManager gameManager) {
+            mGameManager = gameManager;
+
+            return this;
+        }
+
+        public Builder board(MineField board) {
+            mBoard = board;
+
+            return this;
+        }
 
-        public TileViewActionEvent(TileView tileView, int action) {
-            mTileView = tileView;
-            mAction = action;
+        public Builder logicThreaded(boolean isLogicThreaded) {
+            mIsLogicThreaded = isLogicThreaded;
+
+            return this;
+        }
+
+        /**
+         * Records the game's moves.
+         */
+        public Builder replayRecorder(ReplayRecorder replayRecorder) {
+            mReplayRecorder = replayRecorder;
+
+            return this;
+        }
+
+        /**
+         * Resumes a game on a board rebuilt by {@link SavedGame#createBoard()}.
+         */
+        public Builder savedGame(SavedGame savedGame) {
+            mSavedGame = savedGame;
+
+            return this;
+        }
+
+        /**
+         * Autosaves every move from the start of this game.  Journaled games must be played
+         * on a {@link Board}.
+         */
+        public Builder journal(GameJournal journal) {
+            mJournal = journal;
+
+            return this;
+        }
+
+        /**
+         * Shows a window of the board this many tiles across, for boards too large to show whole.
+         */
+        public Builder viewport(int columns, int rows) {
+            mColumns = columns;
+            mRows = rows;
+
+            return this;
+        }
+
+        public Game build() throws InitializationException {
+            if(mGameManager == null || mBoard == null || (mJournal != null && !(mBoard instanceof Board))) {
+                Log.e(TAG, "Game manager and board required, and journaled boards must be Boards.");
+                throw new InitializationException();
+            }
+            else if(mColumns > mBoard.getWidth() || mRows > mBoard.getHeight()
+                    || (mColumns > 0 && (mIsLogicThreaded || mJournal != null))) {
+                // Snapshots and journals cover the whole board, so only unthreaded, unjournaled games use a window.
+                Log.e(TAG, "Viewport must fit the board, and threaded or journaled games show the whole board.");
+                throw new InitializationException();
+            }
+            return new Game(this);
         }
     }
 }
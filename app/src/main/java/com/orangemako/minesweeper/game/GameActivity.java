@@ -15,7 +15,14 @@ import com.orangemako.minesweeper.R;
 import com.orangemako.minesweeper.board.Board;
 import com.orangemako.minesweeper.board.BoardLayoutView;
 import com.orangemako.minesweeper.drawable.ConcentricCirclesDrawable;
-
+import com.orangemako.minesweeper.exceptions.InitializationException;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -28,17 +35,37 @@ public class GameActivity extends AppCompatActivity implements GameManager.Liste
     static final int WON_LEVEL = 1;
     static final int LOST_LEVEL = 2;
 
+    // Launches the activity in endless mode when set on its intent.
+    public static final String EXTRA_ENDLESS = "endless";
+
+    static final String SAVED_GAME_KEY = "saved_game";
+    static final String SAVED_GAME_FILE_KEY = "saved_game_file";
+    static final String SAVED_IN_JOURNAL_KEY = "saved_in_journal";
+    static final String JOURNAL_FILE_NAME = "game.journal";
+    static final String SAVED_GAME_FILE_NAME = "saved.game";
+
+    // Saved instance state shares a binder buffer of about 1 MB with the rest of the process,
+    // so larger games are left in a file and only referred to from the Bundle.
+    static final int MAX_BUNDLED_SAVED_GAME_SIZE = 64 * 1024;
+
     @Bind(R.id.board_layout_view) BoardLayoutView mBoardLayoutView;
     @Bind(R.id.remaining_flags_text_view) TextView mRemainingFlagsTextView;
     @Bind(R.id.elapsed_time_text_view) TextView mElapsedTimeTextView;
     @Bind(R.id.finish_button) Button mFinishButton;
     @Bind(R.id.reset_button) Button mResetButton;
+    @Bind(R.id.undo_button) Button mUndoButton;
+    @Bind(R.id.redo_button) Button mRedoButton;
     @Bind(R.id.status_image_view) ImageView mStatusImageView;
 
     private GameManager mGameManager;
-    private int mDimension = Board.DEFAULT_DIMENSION;
+    private int mWidth = Board.DEFAULT_DIMENSION;
+    private int mHeight = Board.DEFAULT_DIMENSION;
     private int mNumMines = Board.DEFAULT_NUM_MINES;
+    private boolean mIsFirstClickSafe = true;
+    private boolean mIsEndless = false;
+    private boolean mIsLogicThreaded;
     private LevelListDrawable mStatusImageDrawable;
+    private GameJournal mJournal;
 
     private Timer mTimer;
 
@@ -48,13 +75,158 @@ public class GameActivity extends AppCompatActivity implements GameManager.Liste
         setContentView(R.layout.activity_game);
         ButterKnife.bind(this);
 
+        mIsEndless = getIntent().getBooleanExtra(EXTRA_ENDLESS, false);
+        mIsLogicThreaded = getResources().getBoolean(R.bool.logic_threaded);
+
         setupViews();
-        setupGame();
+        openJournal();
+
+        if(savedInstanceState != null && savedInstanceState.getBoolean(SAVED_IN_JOURNAL_KEY)) {
+            // Games too large for the Bundle were left in the journal, which the builder recovers.
+            setupGame();
+            return;
+        }
+
+        byte[] savedGame = savedInstanceState != null ? readSavedGame(savedInstanceState) : null;
+
+        // The journal is written on every move, so it is never behind the saved instance state.
+        if(savedGame != null && (mJournal == null || mJournal.getSavedGame() == null)) {
+            restoreGame(savedGame);
+        }
+        else {
+            setupGame();
+        }
+    }
+
+    private void openJournal() {
+        try {
+            mJournal = GameJournal.open(new File(getFilesDir(), JOURNAL_FILE_NAME));
+        }
+        catch (InitializationException e) {
+            // Games are still played, just not autosaved.
+            mJournal = null;
+        }
+    }
+
+    /**
+     * Reads the game saved by {@link #onSaveInstanceState} in the Bundle or a file, or returns
+     * null if neither holds one or it could not be read.
+     */
+    private byte[] readSavedGame(Bundle savedInstanceState) {
+        byte[] savedGame = savedInstanceState.getByteArray(SAVED_GAME_KEY);
+        String path = savedInstanceState.getString(SAVED_GAME_FILE_KEY);
+
+        if(savedGame != null || path == null) {
+            return savedGame;
+        }
+
+        File file = new File(path);
+        DataInputStream input = null;
+
+        try {
+            input = new DataInputStream(new FileInputStream(file));
+            savedGame = new byte[(int) file.length()];
+            input.readFully(savedGame);
+
+            return savedGame;
+        }
+        catch (IOException e) {
+            return null;
+        }
+        finally {
+            closeQuietly(input);
+        }
+    }
+
+    private void writeSavedGame(File file, byte[] savedGame) throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+
+        try {
+            output.write(savedGame);
+        }
+        finally {
+            closeQuietly(output);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if(closeable != null) {
+            try {
+                closeable.close();
+            }
+            catch (IOException e) {
+                // Nothing more to read or write.
+            }
+        }
+    }
+
+    private void restoreGame(byte[] savedGame) {
+        try {
+            mGameManager = new GameManager.Builder()
+                    .savedGame(savedGame)
+                    .logicThreaded(mIsLogicThreaded)
+                    .journal(mJournal)
+                    .boardLayotuView(mBoardLayoutView)
+                    .listener(this)
+                    .build();
+            showRestoredGame();
+        }
+        catch (Exception e) {
+            // Start over rather than leave the player without a board.
+            setupGame();
+        }
+    }
+
+    private void showRestoredGame() {
+        if(mGameManager.isGameFinished()) {
+            mStatusImageDrawable.setLevel(mGameManager.didWin() ? WON_LEVEL : LOST_LEVEL);
+        }
+        updateTimeElapsed(mGameManager.getElapsedTime());
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+
+        if(mGameManager != null) {
+            try {
+                byte[] savedGame = mGameManager.saveGame();
+
+                if(savedGame.length <= MAX_BUNDLED_SAVED_GAME_SIZE) {
+                    outState.putByteArray(SAVED_GAME_KEY, savedGame);
+                }
+                else if(mJournal != null && mJournal.isJournaling()) {
+                    // The journal already holds this game and is recovered on restore.
+                    outState.putBoolean(SAVED_IN_JOURNAL_KEY, true);
+                }
+                else {
+                    File file = new File(getFilesDir(), SAVED_GAME_FILE_NAME);
+                    writeSavedGame(file, savedGame);
+                    outState.putString(SAVED_GAME_FILE_KEY, file.getPath());
+                }
+            }
+            catch (Exception e) {
+                // A new game is started on restore instead.
+            }
+        }
     }
 
     private void setupGame() {
         try {
-            mGameManager = new GameManager(mDimension, mNumMines, mBoardLayoutView, this);
+            mGameManager = new GameManager.Builder()
+                    .width(mWidth)
+                    .height(mHeight)
+                    .numMines(mNumMines)
+                    .firstClickSafe(mIsFirstClickSafe)
+                    .endless(mIsEndless)
+                    .logicThreaded(mIsLogicThreaded)
+                    .journal(mJournal)
+                    .boardLayotuView(mBoardLayoutView)
+                    .listener(this)
+                    .build();
+
+            // A game recovered from the journal may already be over.
+            showRestoredGame();
         }
         catch (Exception e) {
             String errorMessage = getResources().getString(R.string.board_initialization_error);
@@ -75,7 +247,7 @@ public class GameActivity extends AppCompatActivity implements GameManager.Liste
             @Override
             public void onClick(View v) {
                 try {
-                    mGameManager.initGame(mDimension, mNumMines);
+                    mGameManager.initGame(mWidth, mHeight, mNumMines);
 
                     stopTimer();
                     startTimer();
@@ -89,6 +261,20 @@ public class GameActivity extends AppCompatActivity implements GameManager.Liste
             }
         });
 
+        mUndoButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mGameManager.undo();
+            }
+        });
+
+        mRedoButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mGameManager.redo();
+            }
+        });
+
         setupStatusImageView();
     }
 
@@ -121,6 +307,21 @@ public class GameActivity extends AppCompatActivity implements GameManager.Liste
         stopTimer();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // A logic thread left running would hold on to this activity.
+        if(mGameManager != null) {
+            mGameManager.quit();
+        }
+
+        // The next activity reopens the journal, so this one must stop writing to it.
+        if(mJournal != null) {
+            mJournal.close();
+        }
+    }
+
     void startTimer() {
         if(mGameManager != null && !mGameManager.isGameFinished()) {
             mGameManager.startTimer();
@@ -163,6 +364,11 @@ public class GameActivity extends AppCompatActivity implements GameManager.Liste
 
     @Override
     public void updateMineFlagsRemainingCount(int flagsRemaining) {
+        // Flags never run out on an endless board.
+        if(mIsEndless) {
+            mRemainingFlagsTextView.setText(R.string.unlimited_flags);
+            return;
+        }
         mRemainingFlagsTextView.setText(String.valueOf(flagsRemaining));
     }
 
@@ -184,4 +390,10 @@ public class GameActivity extends AppCompatActivity implements GameManager.Liste
     public void onGameFinished() {
         stopTimer();
     }
+
+    @Override
+    public void onGameResumed() {
+        mStatusImageDrawable.setLevel(IN_PLAY_LEVEL);
+        startTimer();
+    }
 }
@@ -4,38 +4,155 @@ import android.util.Log;
 
 import com.orangemako.minesweeper.board.Board;
 import com.orangemako.minesweeper.board.BoardLayoutView;
+import com.orangemako.minesweeper.board.EndlessBoard;
+import com.orangemako.minesweeper.board.Topology;
 import com.orangemako.minesweeper.exceptions.InitializationException;
 import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
 
 public class GameManager{
     private Listener mListener;
     private BoardLayoutView mBoardLayoutView;
+    private Board mBoard;
     private Game mGame;
+    private boolean mIsFirstClickSafe;
+    private Topology mTopology;
+    private boolean mIsLogicThreaded;
+    private boolean mIsEndless;
+    private GameJournal mJournal;
 
-    public GameManager(int dimension, int numMines, BoardLayoutView boardLayoutView, Listener listener) throws
-            InvalidArgumentException, InitializationException {
+    /**
+     * Built by {@link Builder}, which holds every option.  A game recovered from the journal,
+     * or a saved game, is resumed in place of a new one.
+     */
+    private GameManager(Builder builder) throws InvalidArgumentException, InitializationException {
+        mBoardLayoutView = builder.mBoardLayoutView;
+        mListener = builder.mListener;
+        mIsFirstClickSafe = builder.mIsFirstClickSafe;
+        mTopology = builder.mTopology;
+        mIsLogicThreaded = builder.mIsLogicThreaded;
+        mIsEndless = builder.mIsEndless;
+        mJournal = builder.mJournal;
 
-        mBoardLayoutView = boardLayoutView;
-        mListener = listener;
-
-        initGame(dimension, numMines);
+        if(mIsEndless) {
+            initGame(builder.mWidth, builder.mHeight, builder.mNumMines);
+        }
+        else if(builder.mSavedGame != null) {
+            restoreGame(builder.mSavedGame);
+        }
+        else if(mJournal != null && mJournal.getSavedGame() != null) {
+            restoreGame(mJournal.getSavedGame());
+        }
+        else {
+            initGame(builder.mWidth, builder.mHeight, builder.mNumMines);
+        }
     }
 
-    public void initGame(int dimension, int numMines) throws InvalidArgumentException, InitializationException {
-        // Ensure that old games don't receive game events.
-        if(mGame != null) {
-           mGame.unregisterFromEventBus();
+    /**
+     * Starts a new game.  In endless mode the width and height are those of the window onto
+     * the board, and the mine count is unused.
+     */
+    public void initGame(int width, int height, int numMines) throws InvalidArgumentException, InitializationException {
+        quitGame();
+
+        if(mIsEndless) {
+            initEndlessGame(width, height);
+            return;
         }
 
-        // Pass a new Board with new mines placement to a new Game.
-        Board board = new Board.Builder().dimension(dimension).numMines(numMines).build();
-        mGame = new Game(this, board);
+        // Pass a new Board with new mines placement to a new Game.  When the first click is safe,
+        // only the seed is fixed here and mines are placed once the player uncovers a square.
+        Board board = new Board.Builder()
+                .width(width)
+                .height(height)
+                .numMines(numMines)
+                .topology(mTopology)
+                .deferred(mIsFirstClickSafe)
+                .build();
+        mGame = new Game.Builder()
+                .gameManager(this)
+                .board(board)
+                .logicThreaded(mIsLogicThreaded)
+                .replayRecorder(new ReplayRecorder(board))
+                .journal(mJournal)
+                .build();
+        mBoard = board;
 
         // The BoardLayoutView posts events to the Game during setup, so there must
         // be an initialized Game before setup occurs.
         mBoardLayoutView.setupBoard(board);
     }
 
+    /**
+     * Starts a game on an {@link EndlessBoard}, shown through a window that follows the player.
+     * Endless games are neither journaled, recorded nor saved.
+     */
+    private void initEndlessGame(int columns, int rows) throws InvalidArgumentException, InitializationException {
+        EndlessBoard board = new EndlessBoard.Builder().build();
+
+        if(!mIsFirstClickSafe) {
+            board.generate();
+        }
+
+        mGame = new Game.Builder()
+                .gameManager(this)
+                .board(board)
+                .viewport(columns, rows)
+                .build();
+        mBoard = null;
+
+        mBoardLayoutView.setupBoard(columns, rows, board.getTopology());
+    }
+
+    /**
+     * Replaces the current game with one encoded by {@link #saveGame()}.  The resumed game is
+     * not recorded, as the moves that led up to it were not saved.
+     */
+    public void restoreGame(byte[] savedGame) throws InvalidArgumentException, InitializationException {
+        restoreGame(SavedGame.decode(savedGame));
+    }
+
+    private void restoreGame(SavedGame game) throws InvalidArgumentException, InitializationException {
+        Board board = game.createBoard();
+
+        quitGame();
+
+        mTopology = game.getTopology();
+        mIsFirstClickSafe = game.isDeferred();
+        mGame = new Game.Builder()
+                .gameManager(this)
+                .board(board)
+                .logicThreaded(mIsLogicThreaded)
+                .savedGame(game)
+                .journal(mJournal)
+                .build();
+        mBoard = board;
+
+        mBoardLayoutView.setupBoard(board);
+    }
+
+    public byte[] saveGame() throws InvalidArgumentException {
+        if(mBoard == null) {
+            throw new InvalidArgumentException("Endless games are not saved.");
+        }
+        return mGame.save(mBoard);
+    }
+
+    /**
+     * Stops the game in play, along with its logic thread if it has one.  Called once the
+     * game's views are gone for good.
+     */
+    public void quit() {
+        quitGame();
+    }
+
+    private void quitGame() {
+        // Ensure that old games don't receive game events.
+        if(mGame != null) {
+           mGame.unregisterFromEventDispatcher();
+           mGame.quit();
+        }
+    }
+
     public void publishWin() {
         mListener.onWin();
     }
@@ -48,6 +165,10 @@ public class GameManager{
         mListener.onGameFinished();
     }
 
+    public void publishGameResumed() {
+        mListener.onGameResumed();
+    }
+
     public void publishFlagsRemainingCount(int flagsRemaining) {
         mListener.updateMineFlagsRemainingCount(flagsRemaining);
     }
@@ -61,6 +182,18 @@ public class GameManager{
         mGame.finishGame();
     }
 
+    public Replay getReplay() {
+        return mGame.getReplay();
+    }
+
+    public void undo() {
+        mGame.undo();
+    }
+
+    public void redo() {
+        mGame.redo();
+    }
+
     public void startTimer() {
         mGame.startTimer();
     }
@@ -80,6 +213,10 @@ public class GameManager{
     public boolean isGameFinished() {
         return mGame.isGameFinished();
     }
+
+    public boolean didWin() {
+        return mGame.didWin();
+    }
     // End delegated methods
 
     public interface Listener {
@@ -88,22 +225,49 @@ public class GameManager{
         void onLoss();
         void onWin();
         void onGameFinished();
+        void onGameResumed();
     }
 
     public static class Builder {
         public static final String TAG = Builder.class.getName();
 
-        int mDimension = Board.DEFAULT_DIMENSION;
+        int mWidth = Board.DEFAULT_DIMENSION;
+        int mHeight = Board.DEFAULT_DIMENSION;
         int mNumMines = Board.DEFAULT_NUM_MINES;
+        boolean mIsFirstClickSafe = true;
+        Topology mTopology = Topology.SQUARE;
+        boolean mIsLogicThreaded = false;
+        boolean mIsEndless = false;
+        GameJournal mJournal;
+        byte[] mSavedGame;
         Listener mListener;
         BoardLayoutView mBoardLayoutView;
 
         public Builder dimension(int dimension) throws InvalidArgumentException {
-            if(dimension > 0) {
-                mDimension = dimension;
+            width(dimension);
+            height(dimension);
+
+            return this;
+        }
+
+        public Builder width(int width) throws InvalidArgumentException {
+            if(width > 0) {
+                mWidth = width;
             }
             else {
-                Log.e(TAG, "Dimension must be greater than 0");
+                Log.e(TAG, "Width must be greater than 0");
+                throw new InvalidArgumentException();
+            }
+
+            return this;
+        }
+
+        public Builder height(int height) throws InvalidArgumentException {
+            if(height > 0) {
+                mHeight = height;
+            }
+            else {
+                Log.e(TAG, "Height must be greater than 0");
                 throw new InvalidArgumentException();
             }
 
@@ -121,6 +285,61 @@ public class GameManager{
             return this;
         }
 
+        public Builder firstClickSafe(boolean isFirstClickSafe) {
+            mIsFirstClickSafe = isFirstClickSafe;
+
+            return this;
+        }
+
+        public Builder topology(Topology topology) throws InvalidArgumentException {
+            if(topology != null) {
+                mTopology = topology;
+            }
+            else {
+                Log.e(TAG, "Topology is required");
+                throw new InvalidArgumentException();
+            }
+
+            return this;
+        }
+
+        /**
+         * Runs game logic on its own thread, so large reveals never hold up the main thread.
+         */
+        public Builder logicThreaded(boolean isLogicThreaded) {
+            mIsLogicThreaded = isLogicThreaded;
+
+            return this;
+        }
+
+        /**
+         * Plays on an endless board, with the width and height giving the window onto it.
+         * Endless games ignore the journal and any saved game.
+         */
+        public Builder endless(boolean isEndless) {
+            mIsEndless = isEndless;
+
+            return this;
+        }
+
+        /**
+         * Autosaves every game.  A game it recovered is resumed in place of a new one.
+         */
+        public Builder journal(GameJournal journal) {
+            mJournal = journal;
+
+            return this;
+        }
+
+        /**
+         * Resumes a game encoded by {@link GameManager#saveGame()} instead of starting a new one.
+         */
+        public Builder savedGame(byte[] savedGame) {
+            mSavedGame = savedGame;
+
+            return this;
+        }
+
         public Builder listener(Listener listener) {
             mListener = listener;
 
@@ -139,7 +358,7 @@ public class GameManager{
                 throw new InitializationException();
             }
             else {
-                return new GameManager(mDimension, mNumMines, mBoardLayoutView, mListener);
+                return new GameManager(this);
             }
         }
     }
@@ -0,0 +1,50 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.TileView;
+
+/**
+ * Delivers tile events from the board's views to the game in play.
+ *
+ * Events are plain method calls on one registered listener, with the square and gesture
+ * passed as ints, so a tap allocates nothing and nothing is looked up by reflection.  Only
+ * used from the main thread.
+ */
+public class TileEventDispatcher {
+    private Listener mListener;
+
+    /**
+     * Replaces the registered listener, if any.
+     */
+    public void register(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Unregisters {@code listener}, unless another has been registered since.
+     */
+    public void unregister(Listener listener) {
+        if(mListener == listener) {
+            mListener = null;
+        }
+    }
+
+    public void dispatchTileCreated(TileView tileView) {
+        if(mListener != null) {
+            mListener.onTileCreated(tileView);
+        }
+    }
+
+    /**
+     * @param action {@link TileView#CLICK}, {@link TileView#LONG_CLICK} or {@link TileView#DRAG_FLAG}
+     */
+    public void dispatchTileAction(int xGridCoordinate, int yGridCoordinate, int action) {
+        if(mListener != null) {
+            mListener.onTileAction(xGridCoordinate, yGridCoordinate, action);
+        }
+    }
+
+    public interface Listener {
+        void onTileCreated(TileView tileView);
+        void onTileAction(int xGridCoordinate, int yGridCoordinate, int action);
+    }
+}
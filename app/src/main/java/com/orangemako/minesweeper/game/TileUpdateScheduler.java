@@ -0,0 +1,199 @@
+package com.orangemako.minesweeper.game;
+
+import android.view.Choreographer;
+
+import com.orangemako.minesweeper.board.TileView;
+
+import java.util.Arrays;
+
+/**
+ * Applies square state changes to the tile views a frame-budgeted slice at a time, so an
+ * opening of any size never holds up the main thread for longer than {@link #FRAME_BUDGET_NANOS}.
+ *
+ * The model has already changed when squares are scheduled here; only the views lag behind.
+ * Each batch of changes is ordered outward from the square that caused it, so a large opening
+ * spreads as a wavefront from where it was clicked.  Batches are applied in the order they were
+ * committed, and a square changed again before its view caught up is applied once, in its
+ * latest state.
+ *
+ * Only used from the main thread.
+ */
+class TileUpdateScheduler implements Choreographer.FrameCallback {
+    static final long FRAME_BUDGET_NANOS = 4000000;
+
+    // Tiles applied between clock reads.
+    private static final int CLOCK_CHECK_INTERVAL = 64;
+
+    // Target state of every square, with this bit set while its index is queued.
+    private static final int QUEUED = 0x80;
+    private static final int STATE_MASK = 0x7F;
+
+    private TileView[][] mTileViewsGrid;
+    private int mColumns;
+    private int mRows;
+
+    private byte[] mTargetStates;
+
+    // Ring of queued squares.  Each square is queued at most once, so it never overflows.
+    private int[] mQueue;
+    private int mHead;
+    private int mTail;
+    private int mSize;
+
+    // Squares queued since the last commit, at the tail of the ring.
+    private int mBatchSize;
+
+    // Counting sort buffers for ordering a batch by distance.
+    private int[] mDistanceCounts;
+    private int[] mDistances;
+    private int[] mSorted;
+
+    private boolean mIsFrameScheduled;
+
+    TileUpdateScheduler(TileView[][] tileViewsGrid) {
+        mTileViewsGrid = tileViewsGrid;
+        mRows = tileViewsGrid.length;
+        mColumns = mRows > 0 ? tileViewsGrid[0].length : 0;
+
+        int cellCount = mRows * mColumns;
+
+        mTargetStates = new byte[cellCount];
+        mQueue = new int[cellCount];
+        mDistances = new int[cellCount];
+        mSorted = new int[cellCount];
+        mDistanceCounts = new int[Math.max(mRows, mColumns) + 1];
+    }
+
+    /**
+     * The state the square's view has been or will be set to.
+     */
+    int getState(int index) {
+        return mTargetStates[index] & STATE_MASK;
+    }
+
+    /**
+     * Sets the state a square's view should show.  Takes effect on the next {@link #commit()}.
+     */
+    void set(int index, int state) {
+        int target = mTargetStates[index];
+
+        if((target & QUEUED) == 0) {
+            mQueue[mTail] = index;
+            mTail = mTail + 1 == mQueue.length ? 0 : mTail + 1;
+            mSize++;
+            mBatchSize++;
+        }
+        mTargetStates[index] = (byte) (state | QUEUED);
+    }
+
+    /**
+     * Queues the squares set since the last commit.  Small batches arriving while nothing is
+     * queued are applied straight away; anything left over is applied over the next frames.
+     *
+     * @param origin square the batch spreads out from
+     */
+    void commit(int origin) {
+        // Sorting counts against the budget too.
+        long deadline = System.nanoTime() + FRAME_BUDGET_NANOS;
+
+        if(mBatchSize > 1) {
+            sortBatch(origin);
+        }
+        mBatchSize = 0;
+
+        if(!mIsFrameScheduled && mSize > 0) {
+            apply(deadline);
+        }
+    }
+
+    /**
+     * Drops every queued change, for when the views are no longer shown.
+     */
+    void cancel() {
+        if(mIsFrameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            mIsFrameScheduled = false;
+        }
+
+        for(; mSize > 0; mSize--) {
+            int index = mQueue[mHead];
+            mTargetStates[index] &= STATE_MASK;
+            mHead = mHead + 1 == mQueue.length ? 0 : mHead + 1;
+        }
+        mTail = mHead;
+        mBatchSize = 0;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mIsFrameScheduled = false;
+        apply(System.nanoTime() + FRAME_BUDGET_NANOS);
+    }
+
+    private void apply(long deadline) {
+        int applied = 0;
+
+        while(mSize > 0) {
+            if(applied++ % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+
+            int index = mQueue[mHead];
+            int state = mTargetStates[index] & STATE_MASK;
+
+            mTargetStates[index] = (byte) state;
+            mHead = mHead + 1 == mQueue.length ? 0 : mHead + 1;
+            mSize--;
+
+            TileView tileView = mTileViewsGrid[index / mColumns][index % mColumns];
+
+            if(tileView != null && tileView.getState() != state) {
+                tileView.setState(state);
+            }
+        }
+
+        if(mSize > 0) {
+            Choreographer.getInstance().postFrameCallback(this);
+            mIsFrameScheduled = true;
+        }
+    }
+
+    /**
+     * Orders the batch at the tail of the ring by its distance, in squares, from the origin.
+     * A counting sort, as distances are bounded by the board's dimensions.
+     */
+    private void sortBatch(int origin) {
+        int start = mTail - mBatchSize;
+
+        if(start < 0) {
+            start += mQueue.length;
+        }
+
+        int originX = origin % mColumns;
+        int originY = origin / mColumns;
+
+        Arrays.fill(mDistanceCounts, 0);
+
+        for(int i = 0, slot = start; i < mBatchSize; i++) {
+            int index = mQueue[slot];
+            int y = index / mColumns;
+            int distance = Math.max(Math.abs(index - y * mColumns - originX), Math.abs(y - originY));
+
+            mDistances[i] = distance;
+            mDistanceCounts[distance + 1]++;
+            slot = slot + 1 == mQueue.length ? 0 : slot + 1;
+        }
+        for(int distance = 1; distance < mDistanceCounts.length; distance++) {
+            mDistanceCounts[distance] += mDistanceCounts[distance - 1];
+        }
+
+        for(int i = 0, slot = start; i < mBatchSize; i++) {
+            mSorted[mDistanceCounts[mDistances[i]]++] = mQueue[slot];
+            slot = slot + 1 == mQueue.length ? 0 : slot + 1;
+        }
+        for(int i = 0, slot = start; i < mBatchSize; i++) {
+            mQueue[slot] = mSorted[i];
+            slot = slot + 1 == mQueue.length ? 0 : slot + 1;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.TileView;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TileEventDispatcherTest {
+
+    @Test
+    public void testActionReachesListener() {
+        TileEventDispatcher dispatcher = new TileEventDispatcher();
+        RecordingListener listener = new RecordingListener();
+        dispatcher.register(listener);
+
+        dispatcher.dispatchTileAction(3, 5, TileView.LONG_CLICK);
+
+        Assert.assertEquals(1, listener.mActionCount);
+        Assert.assertEquals(3, listener.mXGridCoordinate);
+        Assert.assertEquals(5, listener.mYGridCoordinate);
+        Assert.assertEquals(TileView.LONG_CLICK, listener.mAction);
+    }
+
+    @Test
+    public void testUnregisteredListenerHearsNothing() {
+        TileEventDispatcher dispatcher = new TileEventDispatcher();
+        RecordingListener listener = new RecordingListener();
+        dispatcher.register(listener);
+        dispatcher.unregister(listener);
+
+        dispatcher.dispatchTileAction(0, 0, TileView.CLICK);
+        dispatcher.dispatchTileCreated(null);
+
+        Assert.assertEquals(0, listener.mActionCount);
+        Assert.assertEquals(0, listener.mCreatedCount);
+    }
+
+    @Test
+    public void testStaleUnregisterKeepsNewListener() {
+        TileEventDispatcher dispatcher = new TileEventDispatcher();
+        RecordingListener oldListener = new RecordingListener();
+        RecordingListener newListener = new RecordingListener();
+
+        // A new game registers before the old one unregisters.
+        dispatcher.register(oldListener);
+        dispatcher.register(newListener);
+        dispatcher.unregister(oldListener);
+
+        dispatcher.dispatchTileCreated(null);
+        dispatcher.dispatchTileAction(1, 1, TileView.CLICK);
+
+        Assert.assertEquals(0, oldListener.mCreatedCount + oldListener.mActionCount);
+        Assert.assertEquals(1, newListener.mCreatedCount);
+        Assert.assertEquals(1, newListener.mActionCount);
+    }
+
+    static class RecordingListener implements TileEventDispatcher.Listener {
+        int mCreatedCount;
+        int mActionCount;
+        int mXGridCoordinate;
+        int mYGridCoordinate;
+        int mAction;
+
+        @Override
+        public void onTileCreated(TileView tileView) {
+            mCreatedCount++;
+        }
+
+        @Override
+        public void onTileAction(int xGridCoordinate, int yGridCoordinate, int action) {
+            mActionCount++;
+            mXGridCoordinate = xGridCoordinate;
+            mYGridCoordinate = yGridCoordinate;
+            mAction = action;
+        }
+    }
+}
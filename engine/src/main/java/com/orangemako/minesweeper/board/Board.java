@@ -0,0 +1,496 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+import com.orangemako.minesweeper.random.RandomSource;
+import com.orangemako.minesweeper.random.SplitMix64Source;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+public class Board implements MineField {
+    public static final int DEFAULT_DIMENSION = 8;
+    public static final int DEFAULT_NUM_MINES = 10;
+
+    // Largest cell count a single packed grid can hold.  Some VMs reserve
+    // header words in arrays, so stay a little below Integer.MAX_VALUE.
+    public static final long MAX_CELL_COUNT = Integer.MAX_VALUE - 8;
+
+    // A deferred board keeps the first uncovered square and all of its neighbors free of mines.
+    static final int SAFE_ZONE_MAX_CELL_COUNT = 9;
+
+    // Packed cell layout.  Each cell is a single byte in a row-major grid:
+    // the low nibble holds the adjacent mines count and the high bit marks a mine.
+    static final int ADJACENT_MINES_COUNT_MASK = 0x0F;
+    static final int MINE_BIT = 0x80;
+
+    // Board creation phase states
+    final static int BOARD_CREATED = 0;
+    final static int GRID_CREATED = 1;
+    final static int MINES_PLACED = 2;
+    final static int GRID_POPULATED = 3;
+
+    private int mCurrentState = BOARD_CREATED;
+    private int mNumMines;
+    private int mWidth;
+    private int mHeight;
+    private long mSeed;
+    private boolean mIsDeferred;
+    private int mSafeIndex = -1;
+    private RandomSource.Factory mRandomSourceFactory;
+    private byte[] mBoardGrid = null;
+    private MineBitboard mMineBitboard;
+    private Topology mTopology;
+    private NeighborTable mNeighborTable;
+    private boolean mIsZeroRegionIndexed;
+    private ZeroRegionIndex mZeroRegionIndex;
+    private ExecutorService mExecutor;
+    private BoardGenerator mGenerator;
+
+    private Board(int width, int height, int numMines, long seed, boolean isDeferred, Topology topology,
+                  RandomSource.Factory randomSourceFactory, ExecutorService executor, boolean isZeroRegionIndexed) {
+        mWidth = width;
+        mHeight = height;
+        mTopology = topology;
+        mNumMines = numMines;
+        mSeed = seed;
+        mIsDeferred = isDeferred;
+        mRandomSourceFactory = randomSourceFactory;
+        mExecutor = executor;
+        mIsZeroRegionIndexed = isZeroRegionIndexed;
+    }
+
+    private void init(int[] excludedIndices) throws InitializationException {
+        initBoardGrid(excludedIndices);
+        initAndPlaceMines();
+        calculateNumberedSquares();
+    }
+
+    private void initBoardGrid(int[] excludedIndices) throws InitializationException {
+        if(mCurrentState == BOARD_CREATED) {
+            // Cell count has already been validated against MAX_CELL_COUNT.
+            mBoardGrid = new byte[getCellCount()];
+            mMineBitboard = new MineBitboard(mWidth, mHeight);
+
+            // Square boards find their neighbors from the width and height, so only wrapped and
+            // hexagonal boards need the table.
+            boolean isSquare = mTopology == Topology.SQUARE;
+
+            if(mNeighborTable == null && !isSquare) {
+                initNeighborTable();
+            }
+            mGenerator = new BoardGenerator(mBoardGrid, mMineBitboard, isSquare ? null : mNeighborTable,
+                    mWidth, mHeight, mSeed, excludedIndices, mRandomSourceFactory, mExecutor);
+            mExecutor = null;
+            mCurrentState = GRID_CREATED;
+        }
+        else {
+            throw new InitializationException("Grid creation must follow board creation.");
+        }
+    }
+
+    private void initNeighborTable() throws InitializationException {
+        try {
+            mNeighborTable = mTopology.createNeighborTable(mWidth, mHeight);
+        }
+        catch (InvalidArgumentException e) {
+            throw new InitializationException("Unable to build the neighbor table.");
+        }
+    }
+
+    private void initAndPlaceMines() throws InitializationException {
+        if(mCurrentState == GRID_CREATED) {
+            try {
+                // Randomly assign and place mines
+                mGenerator.placeMines(mNumMines);
+            }
+            catch (ExecutionException | InterruptedException e) {
+                throw new InitializationException("Mine placement failed.", e);
+            }
+            mCurrentState = MINES_PLACED;
+        }
+        else {
+            throw new InitializationException("Mine placement must follow grid creation");
+        }
+    }
+
+    private void calculateNumberedSquares() throws InitializationException {
+        if (mCurrentState == MINES_PLACED) {
+            try {
+                mGenerator.calculateNumberedSquares();
+            }
+            catch (ExecutionException | InterruptedException e) {
+                throw new InitializationException("Calculation of numbered squares failed.", e);
+            }
+
+            // The generator holds on to the executor, so release it once the grid is complete.
+            mGenerator = null;
+
+            if(mIsZeroRegionIndexed) {
+                mZeroRegionIndex = new ZeroRegionIndex(mBoardGrid, mWidth, mHeight,
+                        mTopology == Topology.SQUARE ? null : mNeighborTable);
+            }
+            mCurrentState = GRID_POPULATED;
+        }
+        else {
+            throw new InitializationException("Calculation of numbered squares requires mines to be placed");
+        }
+    }
+
+    /**
+     * Places mines on a deferred board.
+     */
+    @Override
+    public void generate() throws InitializationException {
+        init(new int[0]);
+    }
+
+    @Override
+    public void generate(int safeXGridCoordinate, int safeYGridCoordinate) throws InitializationException {
+        generate(getIndex(safeXGridCoordinate, safeYGridCoordinate));
+    }
+
+    /**
+     * Places mines on a deferred board, keeping the given square and its neighbors free of mines.
+     * Only the seed is fixed when a deferred board is built, so this is typically called once the
+     * player uncovers their first square.
+     */
+    public void generate(int safeIndex) throws InitializationException {
+        init(getSafeZone(safeIndex));
+        mSafeIndex = safeIndex;
+    }
+
+    @Override
+    public boolean isGenerated() {
+        return mCurrentState == GRID_POPULATED;
+    }
+
+    private int[] getSafeZone(int index) {
+        // The square itself, followed by its neighbors.
+        long[] neighbors = new long[mTopology.getMaxNeighborCount()];
+        int count = mTopology.getNeighbors(getXGridCoordinate(index), getYGridCoordinate(index), mWidth, mHeight,
+                neighbors);
+        int[] safeZone = new int[count + 1];
+
+        for(int k = 0; k < count; k++) {
+            safeZone[k] = (int) neighbors[k];
+        }
+        safeZone[count] = index;
+
+        // Keep the exclusions in index order so a seed reproduces the same board.
+        Arrays.sort(safeZone);
+
+        return safeZone;
+    }
+
+    /**
+     * Returns the packed, row-major cell grid, or null if a deferred board has not been
+     * generated yet.  Use {@link #isMine(int)} and
+     * {@link #adjacentCount(int)} to decode individual cells.
+     */
+    public byte[] getBoardGrid() {
+        return mBoardGrid;
+    }
+
+    /**
+     * The mine layer as a bitboard, for whole-word mine and neighbor mask queries.
+     * Null until the board has been generated.  Neighbor queries on the bitboard always use
+     * the eight square neighbors, whatever the board's topology.
+     */
+    public MineBitboard getMineBitboard() {
+        return mMineBitboard;
+    }
+
+    @Override
+    public Topology getTopology() {
+        return mTopology;
+    }
+
+    /**
+     * Built during generation when the topology or the zero region index needs it, otherwise
+     * on first use.  Null if the board is too large to tabulate.
+     */
+    @Override
+    public NeighborTable getNeighborTable() {
+        if(mNeighborTable == null && mTopology.canTabulate(mWidth, mHeight)) {
+            try {
+                initNeighborTable();
+            }
+            catch (InitializationException e) {
+                return null;
+            }
+        }
+        return mNeighborTable;
+    }
+
+    @Override
+    public int getNeighbors(int xGridCoordinate, int yGridCoordinate, long[] neighbors) {
+        return mTopology.getNeighbors(xGridCoordinate, yGridCoordinate, mWidth, mHeight, neighbors);
+    }
+
+    @Override
+    public boolean isSparse() {
+        return false;
+    }
+
+    @Override
+    public ZeroRegionIndex getZeroRegionIndex() {
+        return mZeroRegionIndex;
+    }
+
+    /**
+     * Grades the generated board.  See {@link BoardMetrics}.
+     */
+    public BoardMetrics calculateMetrics() throws InitializationException {
+        return calculateMetrics(null);
+    }
+
+    /**
+     * Grades the generated board.  Boards with a {@link ZeroRegionIndex} are graded from it;
+     * others build a union-find forest in {@code scratch} when it holds at least one int per
+     * square, which lets callers grade many unindexed boards without allocating.
+     */
+    public BoardMetrics calculateMetrics(int[] scratch) throws InitializationException {
+        if(mZeroRegionIndex != null) {
+            return BoardMetrics.calculate(mBoardGrid, mZeroRegionIndex);
+        }
+
+        NeighborTable neighborTable = getNeighborTable();
+
+        if(!isGenerated() || neighborTable == null) {
+            throw new InitializationException("Metrics require a generated board small enough to tabulate.");
+        }
+        if(scratch == null || scratch.length < mBoardGrid.length) {
+            scratch = new int[mBoardGrid.length];
+        }
+        return BoardMetrics.calculate(mBoardGrid, neighborTable, scratch);
+    }
+
+    public boolean isMine(int index) {
+        return (mBoardGrid[index] & MINE_BIT) != 0;
+    }
+
+    public int adjacentCount(int index) {
+        return mBoardGrid[index] & ADJACENT_MINES_COUNT_MASK;
+    }
+
+    @Override
+    public boolean isMine(int xGridCoordinate, int yGridCoordinate) {
+        return isMine(getIndex(xGridCoordinate, yGridCoordinate));
+    }
+
+    @Override
+    public int adjacentCount(int xGridCoordinate, int yGridCoordinate) {
+        return adjacentCount(getIndex(xGridCoordinate, yGridCoordinate));
+    }
+
+    /**
+     * Row-major cell index.  Since the cell count is capped at {@link #MAX_CELL_COUNT},
+     * any in-bounds coordinate pair maps to a non-negative int without overflow.
+     */
+    public int getIndex(int xGridCoordinate, int yGridCoordinate) {
+        return yGridCoordinate * mWidth + xGridCoordinate;
+    }
+
+    public int getXGridCoordinate(int index) {
+        return index % mWidth;
+    }
+
+    public int getYGridCoordinate(int index) {
+        return index / mWidth;
+    }
+
+    public int getCellCount() {
+        return (int) getCellCount(mWidth, mHeight);
+    }
+
+    @Override
+    public int getWidth() {
+        return mWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return mHeight;
+    }
+
+    static long getCellCount(int width, int height) {
+        return (long) width * height;
+    }
+
+    @Override
+    public int getNumMines() {
+        return mNumMines;
+    }
+
+    /**
+     * The seed the mines were placed from.  Building another board with the same
+     * dimensions, mine count, seed and random source factory reproduces this board.
+     */
+    public long getSeed() {
+        return mSeed;
+    }
+
+    /**
+     * Whether mines were left to be placed after the board was built.
+     */
+    public boolean isDeferred() {
+        return mIsDeferred;
+    }
+
+    /**
+     * The square kept free of mines, with its neighbors, when the board was generated, or -1
+     * if none was.  Together with the seed, this reproduces a deferred board.
+     */
+    public int getSafeIndex() {
+        return mSafeIndex;
+    }
+
+    public static class Builder {
+        int mWidth = DEFAULT_DIMENSION;
+        int mHeight = DEFAULT_DIMENSION;
+        int mNumMines = DEFAULT_NUM_MINES;
+        Long mSeed;
+        Topology mTopology = Topology.SQUARE;
+        RandomSource.Factory mRandomSourceFactory = SplitMix64Source.FACTORY;
+        ExecutorService mExecutor;
+        boolean mIsDeferred = false;
+        boolean mIsZeroRegionIndexed = true;
+
+        /**
+         * Sets both the width and height for a square board.
+         */
+        public Builder dimension(int dimension) throws InvalidArgumentException {
+            width(dimension);
+            height(dimension);
+
+            return this;
+        }
+
+        public Builder width(int width) throws InvalidArgumentException {
+            if(width > 0) {
+                mWidth = width;
+            }
+            else {
+                throw new InvalidArgumentException("Width must be greater than 0.");
+            }
+            return this;
+        }
+
+        public Builder height(int height) throws InvalidArgumentException {
+            if(height > 0) {
+                mHeight = height;
+            }
+            else {
+                throw new InvalidArgumentException("Height must be greater than 0.");
+            }
+            return this;
+        }
+
+        public Builder numMines(int numMines) throws InvalidArgumentException {
+            if(numMines > 0) {
+                mNumMines = numMines;
+            }
+            else {
+                throw new InvalidArgumentException("Mine count must be greater than 0.");
+            }
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            mSeed = seed;
+
+            return this;
+        }
+
+        public Builder topology(Topology topology) throws InvalidArgumentException {
+            if(topology != null) {
+                mTopology = topology;
+            }
+            else {
+                throw new InvalidArgumentException("Topology is required.");
+            }
+            return this;
+        }
+
+        public Builder randomSourceFactory(RandomSource.Factory randomSourceFactory) throws InvalidArgumentException {
+            if(randomSourceFactory != null) {
+                mRandomSourceFactory = randomSourceFactory;
+            }
+            else {
+                throw new InvalidArgumentException("Random source factory is required.");
+            }
+            return this;
+        }
+
+        /**
+         * Generates the board in parallel row stripes on the given executor.  Boards are
+         * identical for a given seed no matter how many threads the executor uses, or whether
+         * an executor is set at all.  The executor is not shut down by the board.
+         */
+        public Builder executor(ExecutorService executor) {
+            mExecutor = executor;
+
+            return this;
+        }
+
+        /**
+         * Defers mine placement until {@link Board#generate(int)} is called, leaving room for a
+         * mine-free square and its neighbors.
+         */
+        public Builder deferred(boolean isDeferred) {
+            mIsDeferred = isDeferred;
+
+            return this;
+        }
+
+        /**
+         * Whether to precompute the board's openings once mines are placed.  Enabled by
+         * default; the index costs up to a few ints per square, so huge boards may opt out.
+         */
+        public Builder zeroRegionIndexed(boolean isZeroRegionIndexed) {
+            mIsZeroRegionIndexed = isZeroRegionIndexed;
+
+            return this;
+        }
+
+        public Board build() throws InitializationException, InvalidArgumentException {
+            validateDimensions();
+
+            // Without an explicit seed, draw a fresh one so the board can still be reproduced.
+            long seed = mSeed != null ? mSeed : new Random().nextLong();
+
+            Board board = new Board(mWidth, mHeight, mNumMines, seed, mIsDeferred, mTopology, mRandomSourceFactory,
+                    mExecutor, mIsZeroRegionIndexed);
+
+            if(!mIsDeferred) {
+                board.generate();
+            }
+
+            return board;
+        }
+
+        void validateDimensions() throws InvalidArgumentException {
+            long cellCount = getCellCount(mWidth, mHeight);
+
+            if(cellCount > MAX_CELL_COUNT) {
+                throw new InvalidArgumentException(
+                        "Board of " + mWidth + "x" + mHeight + " exceeds the maximum cell count.");
+            }
+            else if(mTopology != Topology.SQUARE && !mTopology.canTabulate(mWidth, mHeight)) {
+                throw new InvalidArgumentException(
+                        "Board of " + mWidth + "x" + mHeight + " is too large for its neighbor table.");
+            }
+            else if(mNumMines >= cellCount) {
+                // At least one square must be free of mines.
+                throw new InvalidArgumentException("Mine count must be less than the number of squares.");
+            }
+            else if(mIsDeferred && mNumMines > cellCount - SAFE_ZONE_MAX_CELL_COUNT) {
+                throw new InvalidArgumentException(
+                        "Deferred boards need room for a mine-free first square and its neighbors.");
+            }
+        }
+    }
+}
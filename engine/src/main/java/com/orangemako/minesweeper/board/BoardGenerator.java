@@ -0,0 +1,268 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.random.RandomSource;
+import com.orangemako.minesweeper.random.SplitMix64Source;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Fills a packed board grid in independent row stripes.
+ *
+ * Stripe boundaries depend only on the board width, and every stripe and split draws from
+ * its own generator derived from the board seed.  The resulting grid is therefore identical
+ * whether the stripes run inline or on an executor of any size.
+ *
+ * Generation runs in three phases, each fanned out across stripes:
+ * 1. Mine counts are split between halves of the stripe range with exact hypergeometric
+ *    draws, one tree level at a time, until every stripe knows its own mine count.
+ * 2. Each stripe places its mines on the mine bitboard with Floyd's algorithm inside its
+ *    own rows.
+ * 3. Each stripe packs its rows of the grid from the bitboard, counting adjacent mines 64
+ *    squares at a time and reading the single halo row above and below from the
+ *    neighboring stripes.  Boards with a non-square topology count through their neighbor
+ *    table instead, which may reach into any stripe but only reads the finished bitboard.
+ */
+class BoardGenerator {
+    // Roughly the number of cells per stripe.  Large enough to keep the mine split tree
+    // shallow, small enough to leave plenty of stripes for load balancing.
+    static final int TARGET_STRIPE_CELL_COUNT = 1 << 18;
+
+    private byte[] mBoardGrid;
+    private MineBitboard mMineBitboard;
+    private NeighborTable mNeighborTable;
+    private int mWidth;
+    private int mHeight;
+    private long mSeed;
+    private RandomSource.Factory mRandomSourceFactory;
+    private ExecutorService mExecutor;
+    private int[] mExcludedIndices;
+
+    private int mRowsPerStripe;
+    private int mStripeCount;
+
+    /**
+     * @param neighborTable Neighbors to count adjacent mines over, or null to count the eight
+     *                      square neighbors straight off the bitboard.
+     * @param excludedIndices Cells that must not receive a mine.  Expected to be small.
+     * @param executor Runs stripe tasks.  If null, stripes run on the calling thread.
+     */
+    BoardGenerator(byte[] boardGrid, MineBitboard mineBitboard, NeighborTable neighborTable, int width, int height,
+                   long seed, int[] excludedIndices, RandomSource.Factory randomSourceFactory,
+                   ExecutorService executor) {
+        mBoardGrid = boardGrid;
+        mMineBitboard = mineBitboard;
+        mNeighborTable = neighborTable;
+        mWidth = width;
+        mHeight = height;
+        mSeed = seed;
+        mRandomSourceFactory = randomSourceFactory;
+        mExecutor = executor;
+        mExcludedIndices = excludedIndices;
+
+        mRowsPerStripe = Math.max(1, TARGET_STRIPE_CELL_COUNT / width);
+        mStripeCount = (height + mRowsPerStripe - 1) / mRowsPerStripe;
+    }
+
+    void placeMines(int numMines) throws ExecutionException, InterruptedException {
+        final int[] stripeMineCounts = splitMinesAcrossStripes(numMines);
+
+        List<Callable<Void>> tasks = new ArrayList<>(mStripeCount);
+
+        for(int i = 0; i < mStripeCount; i++) {
+            final int stripe = i;
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    MineSampler.placeMines(mMineBitboard, getStripeStart(stripe), getStripeStart(stripe + 1),
+                            stripeMineCounts[stripe], mExcludedIndices, createRandomSource(stripeKey(stripe)));
+                    return null;
+                }
+            });
+        }
+        runAll(tasks);
+    }
+
+    void calculateNumberedSquares() throws ExecutionException, InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<>(mStripeCount);
+
+        for(int i = 0; i < mStripeCount; i++) {
+            final int stripe = i;
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    calculateStripeNumberedSquares(stripe);
+                    return null;
+                }
+            });
+        }
+        runAll(tasks);
+    }
+
+    private int[] splitMinesAcrossStripes(int numMines) throws ExecutionException, InterruptedException {
+        int[] stripeMineCounts = new int[mStripeCount];
+
+        if(mStripeCount == 1) {
+            stripeMineCounts[0] = numMines;
+            return stripeMineCounts;
+        }
+
+        // Current tree level.  Each node covers stripes [low, high).
+        int[] lows = new int[]{0};
+        int[] highs = new int[]{mStripeCount};
+        int[] mineCounts = new int[]{numMines};
+        int[] nodeIds = new int[]{1};
+        int nodeCount = 1;
+
+        while(nodeCount > 0) {
+            final int[] levelLows = lows;
+            final int[] levelHighs = highs;
+            final int[] levelMineCounts = mineCounts;
+            final int[] levelNodeIds = nodeIds;
+            final int[] leftMineCounts = new int[nodeCount];
+
+            List<Callable<Void>> tasks = new ArrayList<>(nodeCount);
+
+            for(int i = 0; i < nodeCount; i++) {
+                final int node = i;
+
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        int low = levelLows[node];
+                        int high = levelHighs[node];
+                        int middle = (low + high) >>> 1;
+
+                        int cellCount = getAvailableCellCount(low, high);
+                        int leftCellCount = getAvailableCellCount(low, middle);
+
+                        leftMineCounts[node] = MineSampler.splitMines(cellCount, levelMineCounts[node],
+                                leftCellCount, createRandomSource(levelNodeIds[node]));
+                        return null;
+                    }
+                });
+            }
+            runAll(tasks);
+
+            // Build the next level.  Ranges covering a single stripe are resolved.
+            int[] nextLows = new int[nodeCount * 2];
+            int[] nextHighs = new int[nodeCount * 2];
+            int[] nextMineCounts = new int[nodeCount * 2];
+            int[] nextNodeIds = new int[nodeCount * 2];
+            int nextNodeCount = 0;
+
+            for(int i = 0; i < nodeCount; i++) {
+                int low = lows[i];
+                int high = highs[i];
+                int middle = (low + high) >>> 1;
+
+                int[] childLows = {low, middle};
+                int[] childHighs = {middle, high};
+                int[] childMineCounts = {leftMineCounts[i], mineCounts[i] - leftMineCounts[i]};
+
+                for(int child = 0; child < 2; child++) {
+                    if(childHighs[child] - childLows[child] == 1) {
+                        stripeMineCounts[childLows[child]] = childMineCounts[child];
+                    }
+                    else {
+                        nextLows[nextNodeCount] = childLows[child];
+                        nextHighs[nextNodeCount] = childHighs[child];
+                        nextMineCounts[nextNodeCount] = childMineCounts[child];
+                        nextNodeIds[nextNodeCount] = nodeIds[i] * 2 + child;
+                        nextNodeCount++;
+                    }
+                }
+            }
+
+            lows = nextLows;
+            highs = nextHighs;
+            mineCounts = nextMineCounts;
+            nodeIds = nextNodeIds;
+            nodeCount = nextNodeCount;
+        }
+
+        return stripeMineCounts;
+    }
+
+    private void calculateStripeNumberedSquares(int stripe) {
+        int firstRow = stripe * mRowsPerStripe;
+        int lastRow = Math.min(mHeight, firstRow + mRowsPerStripe);
+
+        if(mNeighborTable == null) {
+            for(int y = firstRow; y < lastRow; y++) {
+                mMineBitboard.writePackedRow(y, mBoardGrid);
+            }
+        }
+        else {
+            writePackedSquares(firstRow * mWidth, lastRow * mWidth);
+        }
+    }
+
+    private void writePackedSquares(int start, int end) {
+        int[] neighbors = mNeighborTable.getNeighbors();
+
+        for(int index = start; index < end; index++) {
+            if(mMineBitboard.isMine(index)) {
+                mBoardGrid[index] = (byte) Board.MINE_BIT;
+            }
+            else {
+                int count = 0;
+
+                for(int k = mNeighborTable.getStart(index); k < mNeighborTable.getEnd(index); k++) {
+                    if(mMineBitboard.isMine(neighbors[k])) {
+                        count++;
+                    }
+                }
+                mBoardGrid[index] = (byte) count;
+            }
+        }
+    }
+
+    /**
+     * Number of cells in stripes [lowStripe, highStripe) that may receive a mine.
+     */
+    private int getAvailableCellCount(int lowStripe, int highStripe) {
+        int start = getStripeStart(lowStripe);
+        int end = getStripeStart(highStripe);
+
+        return end - start - MineSampler.countInRange(mExcludedIndices, start, end);
+    }
+
+    private int getStripeStart(int stripe) {
+        return Math.min(mHeight, stripe * mRowsPerStripe) * mWidth;
+    }
+
+    private RandomSource createRandomSource(long key) {
+        return mRandomSourceFactory.create(SplitMix64Source.mix64(mSeed + key * SplitMix64Source.GOLDEN_GAMMA));
+    }
+
+    // Split nodes use positive keys, so stripes take the negative ones.
+    private static long stripeKey(int stripe) {
+        return -1L - stripe;
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws ExecutionException, InterruptedException {
+        if(mExecutor == null) {
+            for(Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                }
+                catch (Exception e) {
+                    throw new ExecutionException(e);
+                }
+            }
+        }
+        else {
+            // Surface the first failure, if any.
+            for(Future<Void> future : mExecutor.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+import com.orangemako.minesweeper.random.SplitMix64Source;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Practically unbounded board whose squares are derived on demand from a counter-based hash
+ * of (seed, x, y).  No grid is stored for the board as a whole.
+ *
+ * Squares are materialized in fixed-size chunks held in an LRU cache.  A cached chunk
+ * only holds data that can be regenerated from the seed, so any chunk may be evicted.
+ * The board is sparse, so a {@link com.orangemako.minesweeper.game.GameEngine} keeps player
+ * state only for the squares the player has touched.
+ *
+ * The mine count is {@link #UNLIMITED_MINES}: flags never run out, and since the mines can
+ * never all be found, an endless game only ends on a mine.
+ */
+public class EndlessBoard implements MineField {
+    public static final float DEFAULT_MINE_DENSITY = 0.15f;
+    public static final int DEFAULT_MAX_CACHED_CHUNKS = 256;
+
+    // Blank squares percolate at about 0.1, where openings run without end.  The limit sits
+    // safely above that, where first-click openings stay in the low thousands of squares.
+    public static final float MIN_MINE_DENSITY = 0.12f;
+
+    // Squares per side.  Far beyond reach, while indices still fit a long.
+    public static final int EXTENT = 1 << 30;
+
+    public static final int UNLIMITED_MINES = Integer.MAX_VALUE;
+
+    // Chunks are CHUNK_SIZE x CHUNK_SIZE squares.
+    static final int CHUNK_SHIFT = 5;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private long mSeed;
+    private float mMineDensity;
+
+    // Hash values below this threshold, out of 2^53, hold a mine.
+    private long mMineThreshold;
+
+    private Map<Long, byte[]> mChunkCache;
+
+    // Center of the square kept free of mines around the first click, once mines are placed.
+    private boolean mIsGenerated = false;
+    private boolean mHasSafeZone = false;
+    private int mSafeX;
+    private int mSafeY;
+
+    private EndlessBoard(long seed, float mineDensity, final int maxCachedChunks) {
+        mSeed = seed;
+        mMineDensity = mineDensity;
+        mMineThreshold = (long) (mineDensity * (1L << 53));
+
+        mChunkCache = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                // Cached chunks are fully regenerable, so the least recently used one can always go.
+                return size() > maxCachedChunks;
+            }
+        };
+    }
+
+    @Override
+    public void generate() throws InitializationException {
+        placeMines(false, 0, 0);
+    }
+
+    /**
+     * Keeps the square and its neighbors free of mines.  Every other square keeps the mine
+     * its hash gives it, so the rest of the board does not depend on where the player starts.
+     */
+    @Override
+    public void generate(int safeXGridCoordinate, int safeYGridCoordinate) throws InitializationException {
+        placeMines(true, safeXGridCoordinate, safeYGridCoordinate);
+    }
+
+    private void placeMines(boolean hasSafeZone, int safeX, int safeY) throws InitializationException {
+        if(mIsGenerated) {
+            throw new InitializationException("Mines have already been placed.");
+        }
+        mHasSafeZone = hasSafeZone;
+        mSafeX = safeX;
+        mSafeY = safeY;
+        mIsGenerated = true;
+
+        // Chunks counted before the safe zone existed would disagree with it.
+        mChunkCache.clear();
+    }
+
+    @Override
+    public boolean isGenerated() {
+        return mIsGenerated;
+    }
+
+    /**
+     * Whether the square holds a mine.  Computed directly from the hash without touching the cache.
+     */
+    @Override
+    public boolean isMine(int x, int y) {
+        if(x < 0 || y < 0 || x >= EXTENT || y >= EXTENT) {
+            return false;
+        }
+        if(mHasSafeZone && Math.abs(x - mSafeX) <= 1 && Math.abs(y - mSafeY) <= 1) {
+            return false;
+        }
+
+        long position = ((long) x << 32) | (y & 0xFFFFFFFFL);
+        long hash = SplitMix64Source.mix64(mSeed + position * SplitMix64Source.GOLDEN_GAMMA);
+
+        return (hash >>> 11) < mMineThreshold;
+    }
+
+    /**
+     * Squares containing mines report no adjacent mines, matching {@link Board}.
+     */
+    @Override
+    public int adjacentCount(int x, int y) {
+        byte square = getChunk(x, y)[getChunkOffset(x, y)];
+
+        return (square & Board.MINE_BIT) != 0 ? 0 : square & Board.ADJACENT_MINES_COUNT_MASK;
+    }
+
+    @Override
+    public int getWidth() {
+        return EXTENT;
+    }
+
+    @Override
+    public int getHeight() {
+        return EXTENT;
+    }
+
+    @Override
+    public int getNumMines() {
+        return UNLIMITED_MINES;
+    }
+
+    @Override
+    public Topology getTopology() {
+        return Topology.SQUARE;
+    }
+
+    @Override
+    public int getNeighbors(int xGridCoordinate, int yGridCoordinate, long[] neighbors) {
+        return Topology.SQUARE.getNeighbors(xGridCoordinate, yGridCoordinate, EXTENT, EXTENT, neighbors);
+    }
+
+    @Override
+    public NeighborTable getNeighborTable() {
+        return null;
+    }
+
+    @Override
+    public ZeroRegionIndex getZeroRegionIndex() {
+        return null;
+    }
+
+    @Override
+    public boolean isSparse() {
+        return true;
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+
+    public float getMineDensity() {
+        return mMineDensity;
+    }
+
+    public int getCachedChunkCount() {
+        return mChunkCache.size();
+    }
+
+    private byte[] getChunk(int x, int y) {
+        long key = getChunkKey(x, y);
+        byte[] chunk = mChunkCache.get(key);
+
+        if(chunk == null) {
+            chunk = generateChunk(x & ~CHUNK_MASK, y & ~CHUNK_MASK);
+            mChunkCache.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Packs the chunk starting at (originX, originY) the same way {@link Board} packs its grid.
+     */
+    private byte[] generateChunk(int originX, int originY) {
+        // Mines for the chunk plus a one square halo on every side.
+        int haloSize = CHUNK_SIZE + 2;
+        boolean[] mines = new boolean[haloSize * haloSize];
+
+        for(int j = 0; j < haloSize; j++) {
+            for(int i = 0; i < haloSize; i++) {
+                mines[j * haloSize + i] = isMine(originX + i - 1, originY + j - 1);
+            }
+        }
+
+        byte[] chunk = new byte[CHUNK_SIZE * CHUNK_SIZE];
+
+        for(int j = 0; j < CHUNK_SIZE; j++) {
+            for(int i = 0; i < CHUNK_SIZE; i++) {
+                int center = (j + 1) * haloSize + (i + 1);
+
+                if(mines[center]) {
+                    chunk[j * CHUNK_SIZE + i] = (byte) Board.MINE_BIT;
+                }
+                else {
+                    int count = 0;
+
+                    for(int row = center - haloSize; row <= center + haloSize; row += haloSize) {
+                        for(int k = row - 1; k <= row + 1; k++) {
+                            if(mines[k]) {
+                                count++;
+                            }
+                        }
+                    }
+                    chunk[j * CHUNK_SIZE + i] = (byte) count;
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private static long getChunkKey(int x, int y) {
+        return ((long) (x >> CHUNK_SHIFT) << 32) | ((y >> CHUNK_SHIFT) & 0xFFFFFFFFL);
+    }
+
+    private static int getChunkOffset(int x, int y) {
+        return (y & CHUNK_MASK) * CHUNK_SIZE + (x & CHUNK_MASK);
+    }
+
+    public static class Builder {
+        Long mSeed;
+        float mMineDensity = DEFAULT_MINE_DENSITY;
+        int mMaxCachedChunks = DEFAULT_MAX_CACHED_CHUNKS;
+
+        public Builder seed(long seed) {
+            mSeed = seed;
+
+            return this;
+        }
+
+        public Builder mineDensity(float mineDensity) throws InvalidArgumentException {
+            if(mineDensity >= MIN_MINE_DENSITY && mineDensity < 1) {
+                mMineDensity = mineDensity;
+            }
+            else {
+                throw new InvalidArgumentException("Mine density must be at least " + MIN_MINE_DENSITY
+                        + " and less than 1.");
+            }
+            return this;
+        }
+
+        public Builder maxCachedChunks(int maxCachedChunks) throws InvalidArgumentException {
+            if(maxCachedChunks > 0) {
+                mMaxCachedChunks = maxCachedChunks;
+            }
+            else {
+                throw new InvalidArgumentException("Chunk cache must hold at least one chunk.");
+            }
+            return this;
+        }
+
+        public EndlessBoard build() {
+            long seed = mSeed != null ? mSeed : new Random().nextLong();
+
+            return new EndlessBoard(seed, mMineDensity, mMaxCachedChunks);
+        }
+    }
+}
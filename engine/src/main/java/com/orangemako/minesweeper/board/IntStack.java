@@ -0,0 +1,45 @@
+package com.orangemako.minesweeper.board;
+
+/**
+ * Growable stack of primitive ints.  Reusing one instance keeps searches allocation-free
+ * once it has grown to fit the largest search.
+ */
+public class IntStack {
+    static final int DEFAULT_CAPACITY = 64;
+
+    private int[] mValues;
+    private int mSize;
+
+    public IntStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntStack(int capacity) {
+        mValues = new int[Math.max(1, capacity)];
+    }
+
+    public void push(int value) {
+        if(mSize == mValues.length) {
+            int[] values = new int[mSize * 2];
+            System.arraycopy(mValues, 0, values, 0, mSize);
+            mValues = values;
+        }
+        mValues[mSize++] = value;
+    }
+
+    public int pop() {
+        return mValues[--mSize];
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+}
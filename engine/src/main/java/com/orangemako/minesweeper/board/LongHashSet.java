@@ -0,0 +1,204 @@
+package com.orangemako.minesweeper.board;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs using open addressing with linear probing.  Keys are stored
+ * inline in a single array, so neither insertion nor lookup allocates.
+ */
+public class LongHashSet {
+    static final float LOAD_FACTOR = 0.5f;
+
+    // Largest table, and so at most MAX_CAPACITY * LOAD_FACTOR keys.  Doubling past this
+    // would overflow the int capacity.
+    static final int MAX_CAPACITY = 1 << 30;
+    public static final int MAX_SIZE = (int) (MAX_CAPACITY * LOAD_FACTOR);
+
+    // Marks an empty slot.  The key itself is tracked separately.
+    static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] mKeys;
+    private int mMask;
+    private int mShift;
+    private int mSize;
+    private int mResizeThreshold;
+    private boolean mContainsEmptyKey;
+    private int mMaxCapacity;
+
+    /**
+     * @param expectedSize keys to make room for up front, at most {@link #MAX_SIZE}
+     */
+    public LongHashSet(int expectedSize) {
+        this(expectedSize, MAX_CAPACITY);
+    }
+
+    LongHashSet(int expectedSize, int maxCapacity) {
+        if(expectedSize > (int) (maxCapacity * LOAD_FACTOR)) {
+            throw new IllegalArgumentException("Expected size " + expectedSize + " exceeds the maximum set size.");
+        }
+        mMaxCapacity = maxCapacity;
+        allocate(getCapacity(expectedSize));
+    }
+
+    public boolean add(long key) {
+        if(key == EMPTY) {
+            boolean added = !mContainsEmptyKey;
+            mContainsEmptyKey = true;
+
+            return added;
+        }
+
+        int slot = getSlot(key);
+
+        while(mKeys[slot] != EMPTY) {
+            if(mKeys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mMask;
+        }
+
+        // Checked before inserting, so a full set is left as it was.
+        if(mSize == mResizeThreshold && mKeys.length == mMaxCapacity) {
+            throw new IllegalStateException("Set is full at " + mSize + " keys.");
+        }
+
+        mKeys[slot] = key;
+
+        if(++mSize > mResizeThreshold) {
+            resize(mKeys.length * 2);
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if(key == EMPTY) {
+            return mContainsEmptyKey;
+        }
+
+        int slot = getSlot(key);
+
+        while(mKeys[slot] != EMPTY) {
+            if(mKeys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mMask;
+        }
+        return false;
+    }
+
+    public boolean remove(long key) {
+        if(key == EMPTY) {
+            boolean removed = mContainsEmptyKey;
+            mContainsEmptyKey = false;
+
+            return removed;
+        }
+
+        int slot = getSlot(key);
+
+        while(mKeys[slot] != EMPTY) {
+            if(mKeys[slot] == key) {
+                closeGap(slot);
+                mSize--;
+
+                return true;
+            }
+            slot = (slot + 1) & mMask;
+        }
+        return false;
+    }
+
+    /**
+     * Copies every key into a new array, in no particular order.
+     */
+    public long[] toArray() {
+        long[] keys = new long[size()];
+        int count = 0;
+
+        for(long key : mKeys) {
+            if(key != EMPTY) {
+                keys[count++] = key;
+            }
+        }
+        if(mContainsEmptyKey) {
+            keys[count] = EMPTY;
+        }
+        return keys;
+    }
+
+    public int size() {
+        return mContainsEmptyKey ? mSize + 1 : mSize;
+    }
+
+    public void clear() {
+        Arrays.fill(mKeys, EMPTY);
+        mSize = 0;
+        mContainsEmptyKey = false;
+    }
+
+    private int getSlot(long key) {
+        // Fibonacci hashing spreads sequential keys across the table.
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> mShift);
+    }
+
+    /**
+     * Empties a slot by shifting later keys of its probe run back into it, so no lookup stops
+     * short of a key.  Removal therefore never leaves tombstones behind.
+     */
+    private void closeGap(int gap) {
+        int slot = gap;
+
+        while(true) {
+            slot = (slot + 1) & mMask;
+            long key = mKeys[slot];
+
+            if(key == EMPTY) {
+                break;
+            }
+
+            // A key may fill the gap only if its home slot is not between the gap and itself.
+            if(((slot - getSlot(key)) & mMask) >= ((slot - gap) & mMask)) {
+                mKeys[gap] = key;
+                gap = slot;
+            }
+        }
+        mKeys[gap] = EMPTY;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = mKeys;
+
+        allocate(capacity);
+
+        for(long key : oldKeys) {
+            if(key != EMPTY) {
+                int slot = getSlot(key);
+
+                while(mKeys[slot] != EMPTY) {
+                    slot = (slot + 1) & mMask;
+                }
+                mKeys[slot] = key;
+                mSize++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        Arrays.fill(mKeys, EMPTY);
+
+        mMask = capacity - 1;
+        mShift = 64 - Integer.numberOfTrailingZeros(capacity);
+        mSize = 0;
+        mResizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int getCapacity(int expectedSize) {
+        int capacity = 2;
+
+        while(capacity * LOAD_FACTOR < expectedSize && capacity < mMaxCapacity) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,160 @@
+package com.orangemako.minesweeper.board;
+
+/**
+ * Mine layer stored as one bit per square, packed into rows of longs.  Each row starts
+ * on a fresh word, so row stripes never share a word and can be written concurrently.
+ *
+ * Adjacent mine counts are produced 64 squares at a time: the eight neighbor layers of a
+ * word are formed by shifting the words above, beside and below it, then summed with
+ * bit-sliced adders into four count planes.
+ */
+public class MineBitboard {
+    private int mWidth;
+    private int mHeight;
+    private int mWordsPerRow;
+    private long[] mWords;
+
+    public MineBitboard(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mWordsPerRow = (width + 63) >>> 6;
+        mWords = new long[mWordsPerRow * height];
+    }
+
+    // Shift distances are taken mod 64 for longs, so shifting by x selects the bit for x within its word.
+    public boolean isMine(int xGridCoordinate, int yGridCoordinate) {
+        return (mWords[yGridCoordinate * mWordsPerRow + (xGridCoordinate >>> 6)] >>> xGridCoordinate & 1L) != 0;
+    }
+
+    /**
+     * @param index Row-major square index, as used by {@link Board}.
+     */
+    public boolean isMine(int index) {
+        int y = index / mWidth;
+
+        return isMine(index - y * mWidth, y);
+    }
+
+    void setMine(int index) {
+        int y = index / mWidth;
+        int x = index - y * mWidth;
+
+        mWords[y * mWordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    /**
+     * Returns the mines surrounding a square as an 8 bit mask.  Bits are ordered row by row
+     * from the top-left neighbor (bit 0) to the bottom-right neighbor (bit 7), skipping the
+     * square itself.  Neighbors off the board read as empty.
+     */
+    public int getNeighborMask(int xGridCoordinate, int yGridCoordinate) {
+        int mask = 0;
+        int bit = 0;
+
+        for(int j = yGridCoordinate - 1; j <= yGridCoordinate + 1; j++) {
+            for(int i = xGridCoordinate - 1; i <= xGridCoordinate + 1; i++) {
+                if(i == xGridCoordinate && j == yGridCoordinate) {
+                    continue;
+                }
+                if(i >= 0 && j >= 0 && i < mWidth && j < mHeight && isMine(i, j)) {
+                    mask |= 1 << bit;
+                }
+                bit++;
+            }
+        }
+        return mask;
+    }
+
+    public int getAdjacentCount(int xGridCoordinate, int yGridCoordinate) {
+        return Integer.bitCount(getNeighborMask(xGridCoordinate, yGridCoordinate));
+    }
+
+    /**
+     * Writes one row of a packed {@link Board} grid: the mine bit for mines, and the adjacent
+     * mines count for every other square.  Only reads the row and its neighbors above and below.
+     */
+    void writePackedRow(int yGridCoordinate, byte[] boardGrid) {
+        int rowWord = yGridCoordinate * mWordsPerRow;
+        int aboveWord = yGridCoordinate > 0 ? rowWord - mWordsPerRow : -1;
+        int belowWord = yGridCoordinate < mHeight - 1 ? rowWord + mWordsPerRow : -1;
+        int rowOffset = yGridCoordinate * mWidth;
+
+        for(int w = 0; w < mWordsPerRow; w++) {
+            long above = wordAt(aboveWord, w);
+            long center = wordAt(rowWord, w);
+            long below = wordAt(belowWord, w);
+
+            long aboveLeft = shiftedLeft(aboveWord, w, above);
+            long aboveRight = shiftedRight(aboveWord, w, above);
+            long left = shiftedLeft(rowWord, w, center);
+            long right = shiftedRight(rowWord, w, center);
+            long belowLeft = shiftedLeft(belowWord, w, below);
+            long belowRight = shiftedRight(belowWord, w, below);
+
+            // Carry-save adder tree over the eight neighbor layers.  Each full adder reduces
+            // three layers of one weight to a sum of that weight and a carry of twice it.
+            long sumA = aboveLeft ^ above ^ aboveRight;
+            long carryA = (aboveLeft & above) | (aboveRight & (aboveLeft ^ above));
+            long sumB = left ^ right ^ belowLeft;
+            long carryB = (left & right) | (belowLeft & (left ^ right));
+            long sumC = below ^ belowRight;
+            long carryC = below & belowRight;
+
+            long ones = sumA ^ sumB ^ sumC;
+            long carryOnes = (sumA & sumB) | (sumC & (sumA ^ sumB));
+
+            long sumTwos = carryA ^ carryB ^ carryC;
+            long carryTwos = (carryA & carryB) | (carryC & (carryA ^ carryB));
+            long twos = sumTwos ^ carryOnes;
+            long carryTwosOnes = sumTwos & carryOnes;
+
+            // Counts top out at 8, so the fours can carry at most once into the eights.
+            long fours = carryTwos ^ carryTwosOnes;
+            long eights = carryTwos & carryTwosOnes;
+
+            int firstX = w << 6;
+            int lastX = Math.min(mWidth, firstX + 64);
+
+            // Nothing to write where there are no mines or counts, since the grid starts zeroed.
+            if((center | ones | twos | fours | eights) == 0) {
+                continue;
+            }
+
+            for(int x = firstX; x < lastX; x++) {
+                int bit = x - firstX;
+
+                if((center >>> bit & 1L) != 0) {
+                    boardGrid[rowOffset + x] = (byte) Board.MINE_BIT;
+                }
+                else {
+                    boardGrid[rowOffset + x] = (byte) ((ones >>> bit & 1L)
+                            | (twos >>> bit & 1L) << 1
+                            | (fours >>> bit & 1L) << 2
+                            | (eights >>> bit & 1L) << 3);
+                }
+            }
+        }
+    }
+
+    private long wordAt(int rowWord, int w) {
+        return rowWord < 0 || w < 0 || w >= mWordsPerRow ? 0 : mWords[rowWord + w];
+    }
+
+    // Layer of each square's left neighbor: bit x holds square x - 1.
+    private long shiftedLeft(int rowWord, int w, long word) {
+        return word << 1 | wordAt(rowWord, w - 1) >>> 63;
+    }
+
+    // Layer of each square's right neighbor: bit x holds square x + 1.
+    private long shiftedRight(int rowWord, int w, long word) {
+        return word >>> 1 | wordAt(rowWord, w + 1) << 63;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+}
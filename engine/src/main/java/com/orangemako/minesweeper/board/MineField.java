@@ -0,0 +1,57 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.exceptions.InitializationException;
+
+/**
+ * Read access to mine placement and adjacent mine counts, as consumed by the game.
+ * Implementations may generate their mines lazily, in which case {@link #generate(int, int)}
+ * must be called before any square is queried.
+ */
+public interface MineField {
+    int getWidth();
+    int getHeight();
+    int getNumMines();
+
+    boolean isMine(int xGridCoordinate, int yGridCoordinate);
+    int adjacentCount(int xGridCoordinate, int yGridCoordinate);
+
+    Topology getTopology();
+
+    /**
+     * Writes the long row-major indices of a square's neighbors into {@code neighbors}, which
+     * must hold at least {@link Topology#getMaxNeighborCount()} values.  Needs no neighbor
+     * table, so it works on boards of any size.
+     *
+     * @return The number of neighbors written.
+     */
+    int getNeighbors(int xGridCoordinate, int yGridCoordinate, long[] neighbors);
+
+    /**
+     * Neighbors of every square under the board's topology, or null if the board is too
+     * large to tabulate.
+     */
+    NeighborTable getNeighborTable();
+
+    /**
+     * Whether the board is too large to hold anything per square, so player state and reveals
+     * must be kept only for the squares actually touched.
+     */
+    boolean isSparse();
+
+    /**
+     * Precomputed openings, or null if the board does not index them.
+     */
+    ZeroRegionIndex getZeroRegionIndex();
+
+    boolean isGenerated();
+
+    /**
+     * Places mines with no square held back.
+     */
+    void generate() throws InitializationException;
+
+    /**
+     * Places mines, keeping the given square and its neighbors free of mines.
+     */
+    void generate(int safeXGridCoordinate, int safeYGridCoordinate) throws InitializationException;
+}
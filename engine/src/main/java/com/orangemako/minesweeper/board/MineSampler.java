@@ -0,0 +1,134 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.random.RandomSource;
+
+/**
+ * Places mines uniformly at random using Floyd's sampling algorithm.  Exactly one
+ * random draw is made per mine and the mine bitboard itself serves as the membership
+ * set, so the cost depends only on the mine count and never on the board density.
+ */
+class MineSampler {
+    private MineSampler() {}
+
+    /**
+     * Marks {@code numMines} distinct cells in [start, end) of {@code mines} as mines,
+     * skipping any cells listed in {@code excludedIndices}.
+     */
+    static void placeMines(MineBitboard mines, int start, int end, int numMines,
+                           int[] excludedIndices, RandomSource random) {
+        long[] excludedOffsets = new long[countInRange(excludedIndices, start, end)];
+        int excludedCount = 0;
+
+        for(int excludedIndex : excludedIndices) {
+            if(excludedIndex >= start && excludedIndex < end) {
+                excludedOffsets[excludedCount++] = excludedIndex - start;
+            }
+        }
+
+        ExclusionMap exclusionMap = new ExclusionMap(end - start, excludedOffsets);
+        int availableCount = (int) exclusionMap.getAvailableCount();
+
+        for(int j = availableCount - numMines; j < availableCount; j++) {
+            int index = start + (int) exclusionMap.remap(random.nextInt(j + 1));
+
+            // Cell j has not been eligible before this draw, so it is always free.
+            if(mines.isMine(index)) {
+                index = start + (int) exclusionMap.remap(j);
+            }
+
+            mines.setMine(index);
+        }
+    }
+
+    static int countInRange(int[] indices, int start, int end) {
+        int count = 0;
+
+        for(int index : indices) {
+            if(index >= start && index < end) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Splits {@code numMines} mines spread uniformly over {@code cellCount} cells, returning how
+     * many land in the first {@code leftCellCount} cells.  The result follows the exact
+     * hypergeometric distribution: the smaller of the mines or free cells is drawn one at a
+     * time without replacement.
+     */
+    static int splitMines(int cellCount, int numMines, int leftCellCount, RandomSource random) {
+        boolean drawFreeCells = numMines > cellCount - numMines;
+        int draws = drawFreeCells ? cellCount - numMines : numMines;
+
+        int leftRemaining = leftCellCount;
+        int cellsRemaining = cellCount;
+        int leftDrawn = 0;
+
+        for(int i = 0; i < draws; i++) {
+            if(random.nextInt(cellsRemaining) < leftRemaining) {
+                leftDrawn++;
+                leftRemaining--;
+            }
+            cellsRemaining--;
+        }
+
+        return drawFreeCells ? leftCellCount - leftDrawn : leftDrawn;
+    }
+
+    /**
+     * Maps sample offsets in [0, availableCount) one-to-one onto the offsets of a range that
+     * are not excluded.  Excluded offsets inside the sampled range are redirected onto the
+     * available offsets past its end, so no draw is ever rejected.
+     */
+    static class ExclusionMap {
+        private long mAvailableCount;
+        private long[] mRemappedFrom;
+        private long[] mRemappedTo;
+        private int mRemappedCount;
+
+        /**
+         * @param excludedOffsets Distinct offsets within [0, rangeCount).  Expected to be small.
+         */
+        ExclusionMap(long rangeCount, long[] excludedOffsets) {
+            mAvailableCount = rangeCount - excludedOffsets.length;
+            mRemappedFrom = new long[excludedOffsets.length];
+            mRemappedTo = new long[excludedOffsets.length];
+
+            long tailOffset = mAvailableCount;
+
+            for(long excludedOffset : excludedOffsets) {
+                if(excludedOffset < mAvailableCount) {
+                    while(contains(excludedOffsets, tailOffset)) {
+                        tailOffset++;
+                    }
+                    mRemappedFrom[mRemappedCount] = excludedOffset;
+                    mRemappedTo[mRemappedCount] = tailOffset++;
+                    mRemappedCount++;
+                }
+            }
+        }
+
+        long getAvailableCount() {
+            return mAvailableCount;
+        }
+
+        long remap(long offset) {
+            for(int i = 0; i < mRemappedCount; i++) {
+                if(mRemappedFrom[i] == offset) {
+                    return mRemappedTo[i];
+                }
+            }
+            return offset;
+        }
+
+        private static boolean contains(long[] offsets, long offset) {
+            for(long candidate : offsets) {
+                if(candidate == offset) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
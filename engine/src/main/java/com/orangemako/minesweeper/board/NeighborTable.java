@@ -0,0 +1,35 @@
+package com.orangemako.minesweeper.board;
+
+/**
+ * Neighbors of every square of a board in compressed sparse row form.  The neighbors of
+ * square {@code i} are {@code getNeighbors()[getStart(i)]} up to, but excluding,
+ * {@code getNeighbors()[getEnd(i)]}.
+ *
+ * Built once per board by its {@link Topology} and shared by generation, reveals and
+ * region indexing.
+ */
+public class NeighborTable {
+    private int[] mOffsets;
+    private int[] mNeighbors;
+
+    NeighborTable(int[] offsets, int[] neighbors) {
+        mOffsets = offsets;
+        mNeighbors = neighbors;
+    }
+
+    public int getCellCount() {
+        return mOffsets.length - 1;
+    }
+
+    public int getStart(int index) {
+        return mOffsets[index];
+    }
+
+    public int getEnd(int index) {
+        return mOffsets[index + 1];
+    }
+
+    public int[] getNeighbors() {
+        return mNeighbors;
+    }
+}
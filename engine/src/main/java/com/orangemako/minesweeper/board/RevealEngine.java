@@ -0,0 +1,259 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.exceptions.InitializationException;
+
+/**
+ * Finds the squares uncovered by clicking a blank square: its opening plus the opening's
+ * numbered border.
+ *
+ * Boards with a {@link ZeroRegionIndex} answer straight from the precomputed span.  Other
+ * square boards are filled a row span at a time: each pop of the work queue extends a run of
+ * blank squares left and right, emits it together with the numbered squares around it, and
+ * queues only the first square of each blank run in the rows above and below.  Boards with
+ * other topologies walk their {@link NeighborTable} square by square.
+ *
+ * Sparse boards are searched breadth first through {@link MineField#getNeighbors}, remembering
+ * visited squares in a hash set, so nothing is sized by the board's area.  Their openings may
+ * be practically endless, so a reveal stops at {@link #MAX_SPARSE_REVEAL_COUNT} squares, nearest
+ * first; uncovering a square at its edge carries it on.
+ *
+ * All buffers are sized once per board, so a reveal never allocates.
+ */
+public class RevealEngine {
+    public static final int MAX_SPARSE_REVEAL_COUNT = 1 << 16;
+
+    private MineField mBoard;
+    private int mWidth;
+    private int mHeight;
+    private NeighborTable mNeighborTable;
+
+    private VisitedBitSet mVisited;
+    private IntStack mWorkQueue = new IntStack();
+    private int[] mRevealedCells;
+
+    // Sparse boards only: squares reached so far, and the revealed squares in the order reached.
+    private LongHashSet mVisitedSquares;
+    private long[] mRevealedSquares;
+    private long[] mNeighbors;
+
+    // Where the last reveal's squares live: either the engine's own buffer or the region index.
+    private int[] mResultCells;
+    private int mResultStart;
+
+    public RevealEngine(MineField board) throws InitializationException {
+        mBoard = board;
+        mWidth = board.getWidth();
+        mHeight = board.getHeight();
+
+        if(board.isSparse()) {
+            mVisitedSquares = new LongHashSet(MAX_SPARSE_REVEAL_COUNT);
+            mRevealedSquares = new long[MAX_SPARSE_REVEAL_COUNT];
+            mNeighbors = new long[board.getTopology().getMaxNeighborCount()];
+
+            return;
+        }
+
+        if(board.getTopology() != Topology.SQUARE) {
+            mNeighborTable = board.getNeighborTable();
+
+            if(mNeighborTable == null) {
+                throw new InitializationException("Board is too large for a neighbor table.");
+            }
+        }
+
+        // The engine keeps one bit and one int per square; the caller already holds a tile per square.
+        long cellCount = (long) mWidth * mHeight;
+
+        if(cellCount > Board.MAX_CELL_COUNT) {
+            throw new InitializationException("Board is too large to reveal square by square.");
+        }
+
+        mVisited = new VisitedBitSet((int) cellCount);
+        mRevealedCells = new int[(int) cellCount];
+    }
+
+    /**
+     * Reveals the opening containing a blank square, numbered border included.  The revealed
+     * square indices are {@link #getRevealedCells()} from {@link #getRevealedStart()}, for the
+     * returned count, or {@link #getRevealedSquares()} from 0 on a sparse board.  They stay
+     * valid until the next call.
+     *
+     * @return The number of squares revealed, or 0 if the square is not blank.
+     */
+    public int reveal(int xGridCoordinate, int yGridCoordinate) {
+        mResultCells = mRevealedCells;
+        mResultStart = 0;
+
+        if(!isBlank(xGridCoordinate, yGridCoordinate)) {
+            return 0;
+        }
+
+        if(mRevealedSquares != null) {
+            return searchSparse(xGridCoordinate, yGridCoordinate);
+        }
+
+        int index = yGridCoordinate * mWidth + xGridCoordinate;
+        ZeroRegionIndex zeroRegionIndex = mBoard.getZeroRegionIndex();
+
+        if(zeroRegionIndex != null) {
+            int region = zeroRegionIndex.getRegion(index);
+
+            mResultCells = zeroRegionIndex.getRegionCells();
+            mResultStart = zeroRegionIndex.getRegionStart(region);
+
+            return zeroRegionIndex.getRegionEnd(region) - mResultStart;
+        }
+        else if(mNeighborTable == null) {
+            return scanlineFill(index);
+        }
+        else {
+            return searchNeighbors(index);
+        }
+    }
+
+    public int[] getRevealedCells() {
+        return mResultCells;
+    }
+
+    public int getRevealedStart() {
+        return mResultStart;
+    }
+
+    /**
+     * Long indices of the squares revealed on a sparse board, or null on any other board.
+     */
+    public long[] getRevealedSquares() {
+        return mRevealedSquares;
+    }
+
+    private int scanlineFill(int startIndex) {
+        mVisited.clear();
+        mWorkQueue.clear();
+        mWorkQueue.push(startIndex);
+
+        int count = 0;
+
+        while(!mWorkQueue.isEmpty()) {
+            int seed = mWorkQueue.pop();
+
+            // Runs are marked as a whole, so a visited seed was reached through another run.
+            if(mVisited.isMarked(seed)) {
+                continue;
+            }
+
+            int y = seed / mWidth;
+            int rowStart = y * mWidth;
+            int left = seed - rowStart;
+            int right = left;
+
+            while(left > 0 && isBlank(left - 1, y)) {
+                left--;
+            }
+            while(right + 1 < mWidth && isBlank(right + 1, y)) {
+                right++;
+            }
+
+            for(int x = left; x <= right; x++) {
+                mVisited.mark(rowStart + x);
+                mRevealedCells[count++] = rowStart + x;
+            }
+
+            // The run touches columns left - 1 through right + 1 in its own row and the rows
+            // next to it.  Numbered squares there are border; blank runs there continue the fill.
+            int spanLeft = Math.max(0, left - 1);
+            int spanRight = Math.min(mWidth - 1, right + 1);
+
+            for(int j = Math.max(0, y - 1); j <= Math.min(mHeight - 1, y + 1); j++) {
+                boolean isInBlankRun = false;
+
+                for(int x = spanLeft; x <= spanRight; x++) {
+                    int index = j * mWidth + x;
+
+                    if(isBlank(x, j)) {
+                        if(!isInBlankRun && !mVisited.isMarked(index)) {
+                            mWorkQueue.push(index);
+                        }
+                        isInBlankRun = true;
+                    }
+                    else {
+                        if(mVisited.mark(index)) {
+                            mRevealedCells[count++] = index;
+                        }
+                        isInBlankRun = false;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private int searchNeighbors(int startIndex) {
+        int[] neighbors = mNeighborTable.getNeighbors();
+        int count = 0;
+
+        mVisited.clear();
+        mWorkQueue.clear();
+
+        mVisited.mark(startIndex);
+        mWorkQueue.push(startIndex);
+        mRevealedCells[count++] = startIndex;
+
+        while(!mWorkQueue.isEmpty()) {
+            int index = mWorkQueue.pop();
+
+            for(int k = mNeighborTable.getStart(index); k < mNeighborTable.getEnd(index); k++) {
+                int neighbor = neighbors[k];
+
+                // Neighbors of a blank square are never mines, so each newly reached square is revealed.
+                if(mVisited.mark(neighbor)) {
+                    mRevealedCells[count++] = neighbor;
+
+                    if(isBlank(neighbor % mWidth, neighbor / mWidth)) {
+                        mWorkQueue.push(neighbor);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The revealed squares double as the queue: each blank one is expanded in the order it
+     * was reached, so the reveal grows outward from the clicked square.
+     */
+    private int searchSparse(int xGridCoordinate, int yGridCoordinate) {
+        long startIndex = (long) yGridCoordinate * mWidth + xGridCoordinate;
+        int count = 0;
+
+        mVisitedSquares.clear();
+        mVisitedSquares.add(startIndex);
+        mRevealedSquares[count++] = startIndex;
+
+        for(int head = 0; head < count; head++) {
+            long index = mRevealedSquares[head];
+            int x = (int) (index % mWidth);
+            int y = (int) (index / mWidth);
+
+            if(head > 0 && !isBlank(x, y)) {
+                continue;
+            }
+
+            int neighborCount = mBoard.getNeighbors(x, y, mNeighbors);
+
+            for(int k = 0; k < neighborCount; k++) {
+                if(count == MAX_SPARSE_REVEAL_COUNT) {
+                    return count;
+                }
+                if(mVisitedSquares.add(mNeighbors[k])) {
+                    mRevealedSquares[count++] = mNeighbors[k];
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean isBlank(int xGridCoordinate, int yGridCoordinate) {
+        return !mBoard.isMine(xGridCoordinate, yGridCoordinate)
+                && mBoard.adjacentCount(xGridCoordinate, yGridCoordinate) == 0;
+    }
+}
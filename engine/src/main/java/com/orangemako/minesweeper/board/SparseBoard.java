@@ -0,0 +1,261 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+import com.orangemako.minesweeper.random.RandomSource;
+import com.orangemako.minesweeper.random.SplitMix64Source;
+
+import java.util.Random;
+
+/**
+ * Board that stores only the positions of its mines, keyed by long row-major index in a
+ * primitive hash set.  Adjacent mine counts are computed on demand from the eight neighbor
+ * lookups, so memory scales with the mine count rather than the board area.  Suited to
+ * huge, low-density boards that would not fit in a packed {@link Board} grid.
+ */
+public class SparseBoard implements MineField {
+    private int mWidth;
+    private int mHeight;
+    private int mNumMines;
+    private long mSeed;
+    private RandomSource.Factory mRandomSourceFactory;
+    private LongHashSet mMineIndices;
+
+    private SparseBoard(int width, int height, int numMines, long seed, RandomSource.Factory randomSourceFactory) {
+        mWidth = width;
+        mHeight = height;
+        mNumMines = numMines;
+        mSeed = seed;
+        mRandomSourceFactory = randomSourceFactory;
+    }
+
+    @Override
+    public void generate() throws InitializationException {
+        placeMines(new long[0]);
+    }
+
+    @Override
+    public void generate(int safeXGridCoordinate, int safeYGridCoordinate) throws InitializationException {
+        int startingX = Math.max(0, safeXGridCoordinate - 1);
+        int startingY = Math.max(0, safeYGridCoordinate - 1);
+        int endingX = Math.min(mWidth - 1, safeXGridCoordinate + 1);
+        int endingY = Math.min(mHeight - 1, safeYGridCoordinate + 1);
+
+        long[] safeZone = new long[(endingX - startingX + 1) * (endingY - startingY + 1)];
+        int count = 0;
+
+        for(int j = startingY; j <= endingY; j++) {
+            for(int i = startingX; i <= endingX; i++) {
+                safeZone[count++] = getIndex(i, j);
+            }
+        }
+        placeMines(safeZone);
+    }
+
+    /**
+     * Floyd's algorithm over the long index space, using the mine set for membership.
+     */
+    private void placeMines(long[] excludedIndices) throws InitializationException {
+        if(mMineIndices != null) {
+            throw new InitializationException("Mines have already been placed.");
+        }
+
+        LongHashSet mineIndices = new LongHashSet(mNumMines);
+        MineSampler.ExclusionMap exclusionMap = new MineSampler.ExclusionMap(getCellCount(), excludedIndices);
+        RandomSource random = mRandomSourceFactory.create(mSeed);
+
+        long availableCount = exclusionMap.getAvailableCount();
+
+        for(long j = availableCount - mNumMines; j < availableCount; j++) {
+            // Cell j has not been eligible before this draw, so it is always free.
+            if(!mineIndices.add(exclusionMap.remap(random.nextLong(j + 1)))) {
+                mineIndices.add(exclusionMap.remap(j));
+            }
+        }
+        mMineIndices = mineIndices;
+    }
+
+    /**
+     * Sparse boards are always square; counts are looked up in the mine set rather than a table.
+     */
+    @Override
+    public Topology getTopology() {
+        return Topology.SQUARE;
+    }
+
+    @Override
+    public int getNeighbors(int xGridCoordinate, int yGridCoordinate, long[] neighbors) {
+        return Topology.SQUARE.getNeighbors(xGridCoordinate, yGridCoordinate, mWidth, mHeight, neighbors);
+    }
+
+    /**
+     * Never tabulated, so the table's size never depends on the board's area.  Neighbors are
+     * found with {@link #getNeighbors(int, int, long[])} instead.
+     */
+    @Override
+    public NeighborTable getNeighborTable() {
+        return null;
+    }
+
+    @Override
+    public boolean isSparse() {
+        return true;
+    }
+
+    /**
+     * A sparse board has no dense grid to index, so openings are always found by search.
+     */
+    @Override
+    public ZeroRegionIndex getZeroRegionIndex() {
+        return null;
+    }
+
+    @Override
+    public boolean isGenerated() {
+        return mMineIndices != null;
+    }
+
+    @Override
+    public boolean isMine(int xGridCoordinate, int yGridCoordinate) {
+        return mMineIndices.contains(getIndex(xGridCoordinate, yGridCoordinate));
+    }
+
+    /**
+     * Squares containing mines report no adjacent mines, matching {@link Board}.
+     */
+    @Override
+    public int adjacentCount(int xGridCoordinate, int yGridCoordinate) {
+        long index = getIndex(xGridCoordinate, yGridCoordinate);
+
+        if(mMineIndices.contains(index)) {
+            return 0;
+        }
+
+        int startingX = Math.max(0, xGridCoordinate - 1);
+        int startingY = Math.max(0, yGridCoordinate - 1);
+        int endingX = Math.min(mWidth - 1, xGridCoordinate + 1);
+        int endingY = Math.min(mHeight - 1, yGridCoordinate + 1);
+
+        int count = 0;
+
+        for(int j = startingY; j <= endingY; j++) {
+            long rowOffset = (long) j * mWidth;
+
+            for(int i = startingX; i <= endingX; i++) {
+                if(mMineIndices.contains(rowOffset + i)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public long getIndex(int xGridCoordinate, int yGridCoordinate) {
+        return (long) yGridCoordinate * mWidth + xGridCoordinate;
+    }
+
+    public long getCellCount() {
+        return (long) mWidth * mHeight;
+    }
+
+    @Override
+    public int getWidth() {
+        return mWidth;
+    }
+
+    @Override
+    public int getHeight() {
+        return mHeight;
+    }
+
+    @Override
+    public int getNumMines() {
+        return mNumMines;
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+
+    public static class Builder {
+        int mWidth = Board.DEFAULT_DIMENSION;
+        int mHeight = Board.DEFAULT_DIMENSION;
+        int mNumMines = Board.DEFAULT_NUM_MINES;
+        Long mSeed;
+        RandomSource.Factory mRandomSourceFactory = SplitMix64Source.FACTORY;
+        boolean mIsDeferred = false;
+
+        public Builder width(int width) throws InvalidArgumentException {
+            if(width > 0) {
+                mWidth = width;
+            }
+            else {
+                throw new InvalidArgumentException("Width must be greater than 0.");
+            }
+            return this;
+        }
+
+        public Builder height(int height) throws InvalidArgumentException {
+            if(height > 0) {
+                mHeight = height;
+            }
+            else {
+                throw new InvalidArgumentException("Height must be greater than 0.");
+            }
+            return this;
+        }
+
+        public Builder numMines(int numMines) throws InvalidArgumentException {
+            if(numMines > 0) {
+                mNumMines = numMines;
+            }
+            else {
+                throw new InvalidArgumentException("Mine count must be greater than 0.");
+            }
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            mSeed = seed;
+
+            return this;
+        }
+
+        public Builder randomSourceFactory(RandomSource.Factory randomSourceFactory) throws InvalidArgumentException {
+            if(randomSourceFactory != null) {
+                mRandomSourceFactory = randomSourceFactory;
+            }
+            else {
+                throw new InvalidArgumentException("Random source factory is required.");
+            }
+            return this;
+        }
+
+        public Builder deferred(boolean isDeferred) {
+            mIsDeferred = isDeferred;
+
+            return this;
+        }
+
+        public SparseBoard build() throws InitializationException, InvalidArgumentException {
+            long cellCount = (long) mWidth * mHeight;
+            long requiredFreeCount = mIsDeferred ? Board.SAFE_ZONE_MAX_CELL_COUNT : 1;
+
+            if(mNumMines > cellCount - requiredFreeCount) {
+                throw new InvalidArgumentException("Not enough squares left free of mines.");
+            }
+            else if(mNumMines > LongHashSet.MAX_SIZE) {
+                throw new InvalidArgumentException("Mine count exceeds what a sparse board can hold.");
+            }
+
+            long seed = mSeed != null ? mSeed : new Random().nextLong();
+            SparseBoard board = new SparseBoard(mWidth, mHeight, mNumMines, seed, mRandomSourceFactory);
+
+            if(!mIsDeferred) {
+                board.generate();
+            }
+
+            return board;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+/**
+ * Which squares of a row-major grid are adjacent to each other.
+ *
+ * Neighbors are only enumerated coordinate by coordinate while building a
+ * {@link NeighborTable}.  Everything that walks the board afterwards (generation, reveals,
+ * openings) reads the table, so no hot loop needs to know about edges or wrapping.
+ */
+public abstract class Topology {
+    // Largest neighbor table that fits in a single int array.
+    static final long MAX_NEIGHBOR_TABLE_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Eight neighbors, clipped at the edges of the board.
+     */
+    public static final Topology SQUARE = new SquareTopology();
+
+    /**
+     * Eight neighbors, wrapping around the left/right and top/bottom edges.
+     */
+    public static final Topology TORUS = new TorusTopology();
+
+    /**
+     * Six neighbors on hexagonal tiles in offset rows, with odd rows shifted half a tile right.
+     */
+    public static final Topology HEX = new HexTopology();
+
+    public abstract int getMaxNeighborCount();
+
+    /**
+     * Writes the indices of the distinct neighbors of a square into {@code neighbors}, which
+     * must hold at least {@link #getMaxNeighborCount()} values.  A square is never its own
+     * neighbor.  Indices are long, so boards too large to tabulate can be walked directly.
+     *
+     * @return The number of neighbors written.
+     */
+    abstract int getNeighbors(int xGridCoordinate, int yGridCoordinate, int width, int height, long[] neighbors);
+
+    /**
+     * Tabulates the neighbors of every square on a board of the given size.
+     */
+    public NeighborTable createNeighborTable(int width, int height) throws InvalidArgumentException {
+        long cellCount = (long) width * height;
+
+        if(!canTabulate(width, height)) {
+            throw new InvalidArgumentException(
+                    "Board of " + width + "x" + height + " is too large for a neighbor table.");
+        }
+
+        int[] offsets = new int[(int) cellCount + 1];
+        long[] squareNeighbors = new long[getMaxNeighborCount()];
+
+        // Count first so the table is allocated at its exact size; clipped edges leave it
+        // short of the worst case.
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                int index = y * width + x;
+
+                offsets[index + 1] = offsets[index] + getNeighbors(x, y, width, height, squareNeighbors);
+            }
+        }
+
+        int[] neighbors = new int[offsets[(int) cellCount]];
+
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                int index = y * width + x;
+
+                getNeighbors(x, y, width, height, squareNeighbors);
+
+                for(int k = offsets[index]; k < offsets[index + 1]; k++) {
+                    neighbors[k] = (int) squareNeighbors[k - offsets[index]];
+                }
+            }
+        }
+
+        return new NeighborTable(offsets, neighbors);
+    }
+
+    /**
+     * Whether a neighbor table for a board of the given size fits in memory addressable by int.
+     */
+    public boolean canTabulate(int width, int height) {
+        return (long) width * height * getMaxNeighborCount() <= MAX_NEIGHBOR_TABLE_SIZE;
+    }
+
+    private static class SquareTopology extends Topology {
+        @Override
+        public int getMaxNeighborCount() {
+            return 8;
+        }
+
+        @Override
+        int getNeighbors(int xGridCoordinate, int yGridCoordinate, int width, int height, long[] neighbors) {
+            int startingX = Math.max(0, xGridCoordinate - 1);
+            int startingY = Math.max(0, yGridCoordinate - 1);
+            int endingX = Math.min(width - 1, xGridCoordinate + 1);
+            int endingY = Math.min(height - 1, yGridCoordinate + 1);
+
+            int count = 0;
+
+            for(int j = startingY; j <= endingY; j++) {
+                for(int i = startingX; i <= endingX; i++) {
+                    if(i != xGridCoordinate || j != yGridCoordinate) {
+                        neighbors[count++] = (long) j * width + i;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    private static class TorusTopology extends Topology {
+        @Override
+        public int getMaxNeighborCount() {
+            return 8;
+        }
+
+        @Override
+        int getNeighbors(int xGridCoordinate, int yGridCoordinate, int width, int height, long[] neighbors) {
+            long self = (long) yGridCoordinate * width + xGridCoordinate;
+            int count = 0;
+
+            for(int dy = -1; dy <= 1; dy++) {
+                int j = (yGridCoordinate + dy + height) % height;
+
+                for(int dx = -1; dx <= 1; dx++) {
+                    int i = (xGridCoordinate + dx + width) % width;
+
+                    // Boards narrower than three squares wrap onto the same neighbor twice.
+                    count = addDistinct((long) j * width + i, self, neighbors, count);
+                }
+            }
+            return count;
+        }
+    }
+
+    private static class HexTopology extends Topology {
+        // Column offsets of the neighbors above and below, for even and odd rows.
+        private static final int[] EVEN_ROW_DX = {-1, 0};
+        private static final int[] ODD_ROW_DX = {0, 1};
+
+        @Override
+        public int getMaxNeighborCount() {
+            return 6;
+        }
+
+        @Override
+        int getNeighbors(int xGridCoordinate, int yGridCoordinate, int width, int height, long[] neighbors) {
+            int[] verticalDx = (yGridCoordinate & 1) == 0 ? EVEN_ROW_DX : ODD_ROW_DX;
+            int count = 0;
+
+            for(int dy = -1; dy <= 1; dy++) {
+                int j = yGridCoordinate + dy;
+
+                if(j < 0 || j >= height) {
+                    continue;
+                }
+
+                if(dy == 0) {
+                    if(xGridCoordinate > 0) {
+                        neighbors[count++] = (long) j * width + xGridCoordinate - 1;
+                    }
+                    if(xGridCoordinate + 1 < width) {
+                        neighbors[count++] = (long) j * width + xGridCoordinate + 1;
+                    }
+                }
+                else {
+                    for(int dx : verticalDx) {
+                        int i = xGridCoordinate + dx;
+
+                        if(i >= 0 && i < width) {
+                            neighbors[count++] = (long) j * width + i;
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    private static int addDistinct(long neighbor, long self, long[] neighbors, int count) {
+        if(neighbor == self) {
+            return count;
+        }
+        for(int k = 0; k < count; k++) {
+            if(neighbors[k] == neighbor) {
+                return count;
+            }
+        }
+        neighbors[count] = neighbor;
+
+        return count + 1;
+    }
+}
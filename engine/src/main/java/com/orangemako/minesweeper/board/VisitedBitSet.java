@@ -0,0 +1,40 @@
+package com.orangemako.minesweeper.board;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size visited markers for searches over square indices, one bit per square.
+ * Meant to be allocated once per board and cleared between searches.
+ */
+public class VisitedBitSet {
+    private long[] mWords;
+
+    public VisitedBitSet(int size) {
+        mWords = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * Marks the index as visited.
+     *
+     * @return true if the index had not been visited before.
+     */
+    public boolean mark(int index) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+
+        if((mWords[word] & bit) != 0) {
+            return false;
+        }
+        mWords[word] |= bit;
+
+        return true;
+    }
+
+    public boolean isMarked(int index) {
+        return (mWords[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void clear() {
+        Arrays.fill(mWords, 0);
+    }
+}
@@ -0,0 +1,324 @@
+package com.orangemako.minesweeper.board;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed openings of a packed board grid.
+ *
+ * Blank squares (no mine, no adjacent mines) are grouped into connected regions with
+ * union-find.  Each region is stored as one contiguous span of square indices: its blank
+ * squares followed by the numbered squares bordering it.  Uncovering any blank square
+ * reveals exactly its region's span, so a reveal is a straight copy rather than a search.
+ */
+public class ZeroRegionIndex {
+    public static final int NO_REGION = -1;
+
+    private int[] mCellRegions;
+    private int[] mRegionOffsets;
+    private int[] mBorderOffsets;
+    private int[] mRegionCells;
+    private int mRegionCount;
+
+    /**
+     * @param neighborTable Adjacency of wrapped or hexagonal boards, or null for square boards,
+     *                      whose neighbors are found from the width and height instead.
+     */
+    ZeroRegionIndex(byte[] boardGrid, int width, int height, NeighborTable neighborTable) {
+        int cellCount = boardGrid.length;
+
+        // Union-find forest over blank squares.  The same array later holds region ids.
+        int[] parents = new int[cellCount];
+
+        for(int i = 0; i < cellCount; i++) {
+            parents[i] = boardGrid[i] == 0 ? i : NO_REGION;
+        }
+
+        if(neighborTable == null) {
+            unionSquareNeighbors(parents, width, height);
+        }
+        else {
+            unionTabulatedNeighbors(parents, neighborTable);
+        }
+
+        // Point every blank square straight at its root.
+        for(int i = 0; i < cellCount; i++) {
+            if(parents[i] != NO_REGION) {
+                parents[i] = find(parents, i);
+            }
+        }
+
+        // Number regions in order of their first square and count their blank squares.
+        // Roots hold the smallest index in their set, so each is labeled before its members.
+        int[] blankCounts = new int[16];
+
+        for(int i = 0; i < cellCount; i++) {
+            int root = parents[i];
+
+            if(root == i) {
+                if(mRegionCount == blankCounts.length) {
+                    blankCounts = Arrays.copyOf(blankCounts, mRegionCount * 2);
+                }
+                parents[i] = encodeLabel(mRegionCount++);
+            }
+            else if(root != NO_REGION) {
+                parents[i] = parents[root];
+            }
+            else {
+                continue;
+            }
+            blankCounts[decodeLabel(parents[i])]++;
+        }
+
+        for(int i = 0; i < cellCount; i++) {
+            if(parents[i] != NO_REGION) {
+                parents[i] = decodeLabel(parents[i]);
+            }
+        }
+        mCellRegions = parents;
+
+        buildRegionSpans(boardGrid, width, height, neighborTable, blankCounts);
+    }
+
+    // Union each blank square with its blank neighbors to the right and in the next row,
+    // which covers every adjacent pair exactly once.
+    private static void unionSquareNeighbors(int[] parents, int width, int height) {
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                int index = y * width + x;
+
+                if(parents[index] == NO_REGION) {
+                    continue;
+                }
+                if(x + 1 < width) {
+                    union(parents, index, index + 1);
+                }
+                if(y + 1 < height) {
+                    int below = index + width;
+
+                    if(x > 0) {
+                        union(parents, index, below - 1);
+                    }
+                    union(parents, index, below);
+
+                    if(x + 1 < width) {
+                        union(parents, index, below + 1);
+                    }
+                }
+            }
+        }
+    }
+
+    // Union each blank square with its later blank neighbors, which covers every
+    // adjacent pair exactly once.
+    private static void unionTabulatedNeighbors(int[] parents, NeighborTable neighborTable) {
+        int[] neighbors = neighborTable.getNeighbors();
+
+        for(int index = 0; index < parents.length; index++) {
+            if(parents[index] == NO_REGION) {
+                continue;
+            }
+            for(int k = neighborTable.getStart(index); k < neighborTable.getEnd(index); k++) {
+                int neighbor = neighbors[k];
+
+                if(neighbor > index) {
+                    union(parents, index, neighbor);
+                }
+            }
+        }
+    }
+
+    private void buildRegionSpans(byte[] boardGrid, int width, int height, NeighborTable neighborTable,
+            int[] blankCounts) {
+        int cellCount = boardGrid.length;
+
+        // Blank squares of each region, grouped by region in index order.
+        int[] blankOffsets = new int[mRegionCount + 1];
+
+        for(int region = 0; region < mRegionCount; region++) {
+            blankOffsets[region + 1] = blankOffsets[region] + blankCounts[region];
+        }
+
+        int[] blankCells = new int[blankOffsets[mRegionCount]];
+        int[] fillPositions = Arrays.copyOf(blankOffsets, mRegionCount);
+
+        for(int i = 0; i < cellCount; i++) {
+            int region = mCellRegions[i];
+
+            if(region != NO_REGION) {
+                blankCells[fillPositions[region]++] = i;
+            }
+        }
+
+        // Append each region's blank squares followed by its deduplicated numbered border.
+        // Borders are stamped with the region currently being collected.
+        int[] borderStamps = new int[cellCount];
+        Arrays.fill(borderStamps, NO_REGION);
+
+        mRegionOffsets = new int[mRegionCount + 1];
+        mBorderOffsets = new int[mRegionCount];
+        mRegionCells = new int[blankCells.length + blankCells.length / 2 + 16];
+
+        int size = 0;
+
+        for(int region = 0; region < mRegionCount; region++) {
+            mRegionOffsets[region] = size;
+
+            size = append(blankCells, blankOffsets[region], blankOffsets[region + 1], size);
+            mBorderOffsets[region] = size;
+
+            for(int k = blankOffsets[region]; k < blankOffsets[region + 1]; k++) {
+                int index = blankCells[k];
+
+                if(neighborTable == null) {
+                    size = appendSquareBorder(index, width, height, region, borderStamps, size);
+                }
+                else {
+                    size = appendTabulatedBorder(index, neighborTable, region, borderStamps, size);
+                }
+            }
+        }
+        mRegionOffsets[mRegionCount] = size;
+        mRegionCells = Arrays.copyOf(mRegionCells, size);
+    }
+
+    private int appendSquareBorder(int index, int width, int height, int region, int[] borderStamps, int size) {
+        int x = index % width;
+        int y = index / width;
+
+        int startingX = Math.max(0, x - 1);
+        int startingY = Math.max(0, y - 1);
+        int endingX = Math.min(width - 1, x + 1);
+        int endingY = Math.min(height - 1, y + 1);
+
+        for(int j = startingY; j <= endingY; j++) {
+            for(int i = startingX; i <= endingX; i++) {
+                size = appendBorder(j * width + i, region, borderStamps, size);
+            }
+        }
+        return size;
+    }
+
+    private int appendTabulatedBorder(int index, NeighborTable neighborTable, int region, int[] borderStamps,
+            int size) {
+        int[] neighbors = neighborTable.getNeighbors();
+
+        for(int n = neighborTable.getStart(index); n < neighborTable.getEnd(index); n++) {
+            size = appendBorder(neighbors[n], region, borderStamps, size);
+        }
+        return size;
+    }
+
+    private int appendBorder(int neighbor, int region, int[] borderStamps, int size) {
+        // Neighbors of blank squares are never mines, so anything not blank is numbered.
+        if(mCellRegions[neighbor] == NO_REGION && borderStamps[neighbor] != region) {
+            borderStamps[neighbor] = region;
+            size = append(neighbor, size);
+        }
+        return size;
+    }
+
+    private int append(int[] values, int from, int to, int size) {
+        int count = to - from;
+
+        ensureCapacity(size + count);
+        System.arraycopy(values, from, mRegionCells, size, count);
+
+        return size + count;
+    }
+
+    private int append(int value, int size) {
+        ensureCapacity(size + 1);
+        mRegionCells[size] = value;
+
+        return size + 1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity > mRegionCells.length) {
+            mRegionCells = Arrays.copyOf(mRegionCells, Math.max(capacity, mRegionCells.length * 2));
+        }
+    }
+
+    // Region labels are stored as negative values while roots still hold indices.
+    private static int encodeLabel(int region) {
+        return -2 - region;
+    }
+
+    private static int decodeLabel(int label) {
+        return -2 - label;
+    }
+
+    /**
+     * Root of the set holding {@code index}, halving the path on the way.  Shared with
+     * {@link BoardMetrics}, which grades boards with the same forest.
+     */
+    static int find(int[] parents, int index) {
+        while(parents[index] != index) {
+            // Path halving
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+
+    /**
+     * Merges the sets holding two blank squares.  Squares marked {@link #NO_REGION} are left alone.
+     *
+     * @return true if the squares were in different sets.
+     */
+    static boolean union(int[] parents, int first, int second) {
+        if(parents[first] == NO_REGION || parents[second] == NO_REGION) {
+            return false;
+        }
+
+        int firstRoot = find(parents, first);
+        int secondRoot = find(parents, second);
+
+        // Keep the smaller index as the root so roots are the first square of their region.
+        if(firstRoot < secondRoot) {
+            parents[secondRoot] = firstRoot;
+        }
+        else if(secondRoot < firstRoot) {
+            parents[firstRoot] = secondRoot;
+        }
+        else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The region containing the blank square at {@code index}, or {@link #NO_REGION}
+     * if the square is a mine or numbered.
+     */
+    public int getRegion(int index) {
+        return mCellRegions[index];
+    }
+
+    public int getRegionCount() {
+        return mRegionCount;
+    }
+
+    /**
+     * Square indices of every region, laid out as consecutive spans.  Region {@code r} occupies
+     * [{@link #getRegionStart(int)}, {@link #getRegionEnd(int)}), blank squares first.
+     */
+    public int[] getRegionCells() {
+        return mRegionCells;
+    }
+
+    public int getRegionStart(int region) {
+        return mRegionOffsets[region];
+    }
+
+    /**
+     * Start of the numbered squares bordering the region, within its span.
+     */
+    public int getBorderStart(int region) {
+        return mBorderOffsets[region];
+    }
+
+    public int getRegionEnd(int region) {
+        return mRegionOffsets[region + 1];
+    }
+}
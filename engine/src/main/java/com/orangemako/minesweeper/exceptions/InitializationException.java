@@ -8,4 +8,8 @@ public class InitializationException extends Exception {
     public InitializationException(String detailMessage) {
         super(detailMessage);
     }
+
+    public InitializationException(String detailMessage, Throwable cause) {
+        super(detailMessage, cause);
+    }
 }
@@ -8,4 +8,8 @@ public class InvalidArgumentException extends Exception {
     public InvalidArgumentException(String detailMessage) {
         super(detailMessage);
     }
+
+    public InvalidArgumentException(String detailMessage, Throwable cause) {
+        super(detailMessage, cause);
+    }
 }
@@ -0,0 +1,97 @@
+package com.orangemako.minesweeper.game;
+
+/**
+ * Everything one move changed, reported to a {@link GameEngine.Listener} in a single call:
+ * the squares with their new states, the flags remaining and the game's result.
+ *
+ * The engine reuses one delta for every move, reading squares straight from its own buffers,
+ * so a delta is only valid during the call it is passed to.
+ */
+public class BoardDelta {
+    // Results
+    public static final int NO_RESULT = 0;
+    public static final int WON = 1;
+    public static final int LOST = 2;
+    public static final int RESUMED = 3;
+
+    private SquareList mSquares;
+    private SquareStates mStates;
+    private int mCount;
+
+    private boolean mIsBoardGenerated;
+    private boolean mHasFlagsRemainingChanged;
+    private int mMineFlagsRemainingCount;
+    private int mResult;
+
+    BoardDelta(SquareList squares, SquareStates states) {
+        mSquares = squares;
+        mStates = states;
+    }
+
+    void setChangedCount(int count) {
+        mCount = count;
+    }
+
+    void setBoardGenerated() {
+        mIsBoardGenerated = true;
+    }
+
+    void setMineFlagsRemainingCount(int flagsRemaining) {
+        mHasFlagsRemainingChanged = true;
+        mMineFlagsRemainingCount = flagsRemaining;
+    }
+
+    void setResult(int result) {
+        mResult = result;
+    }
+
+    boolean isEmpty() {
+        return mCount == 0 && !mIsBoardGenerated && !mHasFlagsRemainingChanged && mResult == NO_RESULT;
+    }
+
+    void clear() {
+        mCount = 0;
+        mIsBoardGenerated = false;
+        mHasFlagsRemainingChanged = false;
+        mResult = NO_RESULT;
+    }
+
+    public int getChangedCount() {
+        return mCount;
+    }
+
+    /**
+     * Row-major index of the {@code i}th changed square.  Each square appears at most once.
+     * Long, as a sparse board can have more squares than an int can index.
+     */
+    public long getChangedSquare(int i) {
+        return mSquares.get(i);
+    }
+
+    public int getChangedState(int i) {
+        return mStates.get(mSquares.get(i));
+    }
+
+    /**
+     * Mines were placed by this move, so every square's contents can now be shown.
+     */
+    public boolean isBoardGenerated() {
+        return mIsBoardGenerated;
+    }
+
+    public boolean hasFlagsRemainingChanged() {
+        return mHasFlagsRemainingChanged;
+    }
+
+    public int getMineFlagsRemainingCount() {
+        return mMineFlagsRemainingCount;
+    }
+
+    /**
+     * {@link #WON} or {@link #LOST} if this move ended the game, {@link #RESUMED} if it undid
+     * the end, otherwise {@link #NO_RESULT}.
+     */
+    public int getResult() {
+        return mResult;
+    }
+}
@@ -0,0 +1,193 @@
+package com.orangemako.minesweeper.game;
+
+/**
+ * Undo history of a game, holding only the squares each move changed.
+ *
+ * Changes are stored as runs of consecutive squares that moved between the same two states,
+ * two longs per run, so a flood reveal costs about one run per row it spans rather than one
+ * entry per square.  Each move also keeps the game's counters from before and after it.
+ * Memory grows with the size of the moves, never with the board.  Squares and counters are
+ * long, as a sparse board can have more squares than an int can count.
+ */
+class DeltaLog {
+    static final int DEFAULT_CAPACITY = 64;
+
+    // Counters kept for each move
+    static final int FLAGS_REMAINING = 0;
+    static final int COVERED_SAFE = 1;
+    static final int CORRECT_FLAGS = 2;
+    static final int STATUS = 3;
+    static final int COUNTER_COUNT = 4;
+
+    // Move record layout: first run, then the counters before and after the move.
+    private static final int BEFORE = 1;
+    private static final int AFTER = BEFORE + COUNTER_COUNT;
+    private static final int RECORD_SIZE = AFTER + COUNTER_COUNT;
+
+    // Run layout: first square, then (length << 4 | old state << 2 | new state).
+    private static final int STATE_BITS = 2;
+    private static final int STATE_MASK = 0x3;
+    private static final int LENGTH_SHIFT = 2 * STATE_BITS;
+    private static final int MAX_RUN_LENGTH = -1 >>> LENGTH_SHIFT;
+
+    private long[] mRuns = new long[DEFAULT_CAPACITY];
+    private int mRunsSize;
+
+    private long[] mMoves = new long[DEFAULT_CAPACITY * RECORD_SIZE];
+
+    // Moves that can be undone, and every move still held for redo.
+    private int mMoveCount;
+    private int mRedoLimit;
+
+    // Move being recorded: where its runs start and the counters from before it.  Kept apart
+    // from the move records, so a move that changes nothing leaves the redo history intact.
+    private boolean mIsRecording = false;
+    private int mRecordingRunsStart;
+    private long[] mRecordingCounters = new long[COUNTER_COUNT];
+
+    /**
+     * Starts recording a move.
+     */
+    void beginMove(long[] counters) {
+        mRecordingRunsStart = mRunsSize;
+        System.arraycopy(counters, 0, mRecordingCounters, 0, COUNTER_COUNT);
+        mIsRecording = true;
+    }
+
+    void record(long index, int oldState, int newState) {
+        if(!mIsRecording) {
+            return;
+        }
+
+        int stateBits = oldState << STATE_BITS | newState;
+
+        // Extend the last run if this square follows it with the same change.
+        if(mRunsSize > mRecordingRunsStart) {
+            long start = mRuns[mRunsSize - 2];
+            int packed = (int) mRuns[mRunsSize - 1];
+            int length = packed >>> LENGTH_SHIFT;
+
+            if(start + length == index && (packed & ((1 << LENGTH_SHIFT) - 1)) == stateBits
+                    && length < MAX_RUN_LENGTH) {
+                mRuns[mRunsSize - 1] = (length + 1) << LENGTH_SHIFT | stateBits;
+                return;
+            }
+        }
+
+        if(mRunsSize + 2 > mRuns.length) {
+            long[] runs = new long[mRuns.length * 2];
+            System.arraycopy(mRuns, 0, runs, 0, mRunsSize);
+            mRuns = runs;
+        }
+        mRuns[mRunsSize++] = index;
+        mRuns[mRunsSize++] = 1 << LENGTH_SHIFT | stateBits;
+    }
+
+    /**
+     * Finishes the move being recorded.  A move that changed no square is not kept.  A kept
+     * move drops the moves that could be redone, as the history now diverges from them.
+     *
+     * @return whether the move was kept
+     */
+    boolean endMove(long[] counters) {
+        mIsRecording = false;
+
+        int runsLength = mRunsSize - mRecordingRunsStart;
+
+        if(runsLength == 0) {
+            return false;
+        }
+
+        int record = mMoveCount * RECORD_SIZE;
+
+        if(record + RECORD_SIZE > mMoves.length) {
+            long[] moves = new long[mMoves.length * 2];
+            System.arraycopy(mMoves, 0, moves, 0, record);
+            mMoves = moves;
+        }
+
+        // Runs are stored in move order, so the undone moves' runs start where the next one
+        // did.  The new move's runs were appended after them and take their place.
+        int runsStart = mMoveCount < mRedoLimit ? (int) mMoves[record] : mRecordingRunsStart;
+
+        if(runsStart < mRecordingRunsStart) {
+            System.arraycopy(mRuns, mRecordingRunsStart, mRuns, runsStart, runsLength);
+            mRunsSize = runsStart + runsLength;
+        }
+
+        mMoves[record] = runsStart;
+        System.arraycopy(mRecordingCounters, 0, mMoves, record + BEFORE, COUNTER_COUNT);
+        System.arraycopy(counters, 0, mMoves, record + AFTER, COUNTER_COUNT);
+        mRedoLimit = ++mMoveCount;
+
+        return true;
+    }
+
+    boolean canUndo() {
+        return mMoveCount > 0;
+    }
+
+    boolean canRedo() {
+        return mMoveCount < mRedoLimit;
+    }
+
+    /**
+     * Restores the squares changed by the last move and its counters from before it.
+     *
+     * Each square put back is added to {@code changedSquares}.
+     */
+    void undo(SquareStates states, SquareList changedSquares, long[] counters) {
+        int record = --mMoveCount * RECORD_SIZE;
+
+        System.arraycopy(mMoves, record + BEFORE, counters, 0, COUNTER_COUNT);
+
+        apply((int) mMoves[record], (int) mMoves[record] + getRunsLength(mMoveCount), STATE_BITS,
+                states, changedSquares);
+    }
+
+    /**
+     * Replays the last undone move.
+     *
+     * Each square changed is added to {@code changedSquares}.
+     */
+    void redo(SquareStates states, SquareList changedSquares, long[] counters) {
+        int record = mMoveCount * RECORD_SIZE;
+
+        System.arraycopy(mMoves, record + AFTER, counters, 0, COUNTER_COUNT);
+
+        apply((int) mMoves[record], (int) mMoves[record] + getRunsLength(mMoveCount), 0,
+                states, changedSquares);
+        mMoveCount++;
+    }
+
+    /**
+     * Longs of run data held, for measuring how compact the log is.
+     */
+    int getRunsSize() {
+        return mRunsSize;
+    }
+
+    private void apply(int from, int to, int stateShift, SquareStates states, SquareList changedSquares) {
+        for(int run = from; run < to; run += 2) {
+            long start = mRuns[run];
+            int packed = (int) mRuns[run + 1];
+            int length = packed >>> LENGTH_SHIFT;
+            int state = (packed >>> stateShift) & STATE_MASK;
+
+            for(long index = start; index < start + length; index++) {
+                states.set(index, state);
+                changedSquares.add(index);
+            }
+        }
+    }
+
+    /**
+     * Longs of run data recorded by a kept move.
+     */
+    private int getRunsLength(int move) {
+        int record = move * RECORD_SIZE;
+        long end = move + 1 < mRedoLimit ? mMoves[record + RECORD_SIZE] : mRunsSize;
+
+        return (int) (end - mMoves[record]);
+    }
+}
@@ -0,0 +1,736 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.Board;
+import com.orangemako.minesweeper.board.MineField;
+import com.orangemako.minesweeper.board.RevealEngine;
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+/**
+ * Rules and player state of a single game, independent of any view.
+ *
+ * Square states are kept by long row-major index in {@link SquareStates}: a byte per square
+ * on ordinary boards, only the touched squares on sparse ones.  Neighbors are found through
+ * {@link MineField#getNeighbors}, so nothing here is sized by the board's area unless the
+ * board is dense.  Each move records the squares it changed and reports them to the listener
+ * in one {@link BoardDelta} once the move is complete, together with the flags remaining and
+ * the result if either changed.  Moves are kept in a {@link DeltaLog}, so they can be undone
+ * and redone.
+ */
+public class GameEngine {
+    // Square states
+    public static final int COVERED = 0;
+    public static final int FLAGGED_AS_MINE = 1;
+    public static final int UNCOVERED = 2;
+
+    // Status bits kept with each move in the delta log
+    private static final int MINE_UNCOVERED = 1;
+    private static final int GAME_FINISHED = 1 << 1;
+    private static final int WON = 1 << 2;
+
+    private MineField mBoard;
+    private Listener mListener;
+    private long mCellCount;
+
+    private SquareStates mStates;
+    private RevealEngine mRevealEngine;
+    private long[] mNeighbors;
+
+    // Squares changed by the current move.  A move changes each square at most once.
+    private SquareList mChangedSquares = new SquareList();
+    private BoardDelta mDelta;
+
+    // Counters as last reported, so a delta only carries the ones that changed.
+    private int mReportedFlagsRemainingCount;
+    private boolean mIsReportedGameFinished;
+
+    private DeltaLog mDeltaLog = new DeltaLog();
+    private long[] mCounters = new long[DeltaLog.COUNTER_COUNT];
+
+    // Gesture and square of the move in progress, for the replay and the journal.
+    private ReplayRecorder mReplayRecorder;
+    private GameJournal mJournal;
+    private int mMoveGesture;
+    private long mMoveIndex;
+
+    // Game state
+    private boolean mIsGameFinished = false;
+    private boolean mDidWin = false;
+    private long mStartTime;
+    private long mElapsedTime = 0;
+
+    private int mMineFlagsRemainingCount;
+
+    // Running totals, so a win is detected on the move that completes the board.
+    private long mCoveredSafeCount;
+    private int mCorrectFlagCount;
+    private boolean mIsMineUncovered = false;
+
+    public GameEngine(MineField board, Listener listener) throws InitializationException {
+        if(board == null || listener == null) {
+            throw new InitializationException("Board and listener required.");
+        }
+
+        mBoard = board;
+        mListener = listener;
+        mCellCount = (long) board.getWidth() * board.getHeight();
+
+        if(!board.isSparse() && mCellCount > Board.MAX_CELL_COUNT) {
+            throw new InitializationException("Board is too large to play without a sparse board.");
+        }
+
+        mStates = SquareStates.create(board);
+        mDelta = new BoardDelta(mChangedSquares, mStates);
+        mRevealEngine = new RevealEngine(board);
+        mNeighbors = new long[board.getTopology().getMaxNeighborCount()];
+
+        mMineFlagsRemainingCount = board.getNumMines();
+        mReportedFlagsRemainingCount = mMineFlagsRemainingCount;
+        mCoveredSafeCount = mCellCount - board.getNumMines();
+    }
+
+    /**
+     * Flags a covered square or removes the flag from a flagged one.  Flags are limited to the
+     * number of mines.
+     */
+    public void toggleFlag(int xGridCoordinate, int yGridCoordinate) {
+        if(mIsGameFinished) {
+            return;
+        }
+
+        long index = toIndex(xGridCoordinate, yGridCoordinate);
+        int state = mStates.get(index);
+
+        if(state == COVERED && mMineFlagsRemainingCount > 0) {
+            beginMove(Replay.CLICK, index);
+            setState(index, FLAGGED_AS_MINE);
+            mMineFlagsRemainingCount--;
+        }
+        else if(state == FLAGGED_AS_MINE) {
+            beginMove(Replay.CLICK, index);
+            setState(index, COVERED);
+            mMineFlagsRemainingCount++;
+        }
+        else {
+            return;
+        }
+        completeMove();
+    }
+
+    /**
+     * Flags a covered square, leaving flagged and uncovered ones as they are, so dragging
+     * across squares never takes a flag off.  Kept as an ordinary flag toggle.
+     */
+    public void flag(int xGridCoordinate, int yGridCoordinate) {
+        if(getState(xGridCoordinate, yGridCoordinate) == COVERED) {
+            toggleFlag(xGridCoordinate, yGridCoordinate);
+        }
+    }
+
+    /**
+     * Uncovers a covered square, opening its region if it is blank.  A deferred board places
+     * its mines on the first uncover, keeping the square and its neighbors safe.
+     */
+    public void uncover(int xGridCoordinate, int yGridCoordinate) throws InitializationException {
+        long index = toIndex(xGridCoordinate, yGridCoordinate);
+
+        if(mIsGameFinished || mStates.get(index) != COVERED) {
+            return;
+        }
+
+        if(!mBoard.isGenerated()) {
+            mBoard.generate(xGridCoordinate, yGridCoordinate);
+            onBoardGenerated();
+        }
+
+        // Generation is not part of the move, so undoing it keeps the mines where they are.
+        beginMove(Replay.LONG_CLICK, index);
+
+        // Even if a player loses, the square is uncovered.
+        uncover(index);
+        completeMove();
+    }
+
+    /**
+     * Uncovers every unflagged neighbor of an uncovered number once the number's mines have
+     * all been flagged.  Neighbors that are blank open their regions as usual.
+     */
+    public void chord(int xGridCoordinate, int yGridCoordinate) {
+        long index = toIndex(xGridCoordinate, yGridCoordinate);
+        int adjacentCount;
+
+        if(mIsGameFinished || mStates.get(index) != UNCOVERED
+                || (adjacentCount = mBoard.adjacentCount(xGridCoordinate, yGridCoordinate)) == 0) {
+            return;
+        }
+
+        // Uncovering a neighbor can reveal an opening, which does not touch the neighbor buffer.
+        int neighborCount = mBoard.getNeighbors(xGridCoordinate, yGridCoordinate, mNeighbors);
+        int flagCount = 0;
+
+        for(int k = 0; k < neighborCount; k++) {
+            if(mStates.get(mNeighbors[k]) == FLAGGED_AS_MINE) {
+                flagCount++;
+            }
+        }
+
+        if(flagCount == adjacentCount) {
+            // Either gesture chords an uncovered number.
+            beginMove(Replay.CLICK, index);
+
+            for(int k = 0; k < neighborCount; k++) {
+                // Earlier neighbors may already have opened this one.
+                if(mStates.get(mNeighbors[k]) == COVERED) {
+                    uncover(mNeighbors[k]);
+                }
+            }
+            completeMove();
+        }
+    }
+
+    /**
+     * Toggles the flag on a covered square, or chords an uncovered one.
+     */
+    public void toggleFlagOrChord(int xGridCoordinate, int yGridCoordinate) {
+        if(getState(xGridCoordinate, yGridCoordinate) == UNCOVERED) {
+            chord(xGridCoordinate, yGridCoordinate);
+        }
+        else {
+            toggleFlag(xGridCoordinate, yGridCoordinate);
+        }
+    }
+
+    /**
+     * Uncovers a covered square, or chords an uncovered one.
+     */
+    public void uncoverOrChord(int xGridCoordinate, int yGridCoordinate) throws InitializationException {
+        if(getState(xGridCoordinate, yGridCoordinate) == UNCOVERED) {
+            chord(xGridCoordinate, yGridCoordinate);
+        }
+        else {
+            uncover(xGridCoordinate, yGridCoordinate);
+        }
+    }
+
+    /**
+     * Ends the game at the player's request.  The player wins if every mine is flagged or
+     * every safe square is uncovered.
+     */
+    public void finish() throws InitializationException {
+        if(mIsGameFinished) {
+            return;
+        }
+
+        if(!mBoard.isGenerated()) {
+            // Finished before the first move, so there is no square to keep safe.
+            mBoard.generate();
+            onBoardGenerated();
+        }
+
+        beginMove(Replay.FINISH, 0);
+
+        // Flags are capped at the mine count, so this means every mine has been flagged.
+        endGame(mCorrectFlagCount == mBoard.getNumMines() || mCoveredSafeCount == 0);
+        completeMove();
+    }
+
+    /**
+     * Takes back the last move, including one that ended the game.
+     */
+    public void undo() {
+        if(mDeltaLog.canUndo()) {
+            mDeltaLog.undo(mStates, mChangedSquares, mCounters);
+            restore(GameJournal.UNDO);
+
+            if(mReplayRecorder != null) {
+                mReplayRecorder.undo();
+            }
+        }
+    }
+
+    /**
+     * Replays the last move taken back.  Any new move drops the moves that could be redone.
+     */
+    public void redo() {
+        if(mDeltaLog.canRedo()) {
+            mDeltaLog.redo(mStates, mChangedSquares, mCounters);
+            restore(GameJournal.REDO);
+
+            if(mReplayRecorder != null) {
+                mReplayRecorder.redo();
+            }
+        }
+    }
+
+    /**
+     * Records every move kept from now on.  Must be set before the first move.
+     */
+    public void setReplayRecorder(ReplayRecorder replayRecorder) {
+        mReplayRecorder = replayRecorder;
+    }
+
+    /**
+     * Appends every move kept from now on.  Set by {@link GameJournal#start}.
+     */
+    void setJournal(GameJournal journal) {
+        mJournal = journal;
+    }
+
+    public boolean canUndo() {
+        return mDeltaLog.canUndo();
+    }
+
+    public boolean canRedo() {
+        return mDeltaLog.canRedo();
+    }
+
+    private void uncover(long index) {
+        int x = getXGridCoordinate(index);
+        int y = getYGridCoordinate(index);
+
+        setState(index, UNCOVERED);
+
+        if(mBoard.isMine(x, y)) {
+            mIsMineUncovered = true;
+        }
+        else if(mBoard.adjacentCount(x, y) == 0) {
+            uncoverOpening(x, y);
+        }
+    }
+
+    /**
+     * Uncovers the opening around a blank square, numbered border included, leaving flags in place.
+     */
+    private void uncoverOpening(int xGridCoordinate, int yGridCoordinate) {
+        int count = mRevealEngine.reveal(xGridCoordinate, yGridCoordinate);
+        long[] revealedSquares = mRevealEngine.getRevealedSquares();
+
+        if(revealedSquares != null) {
+            for(int k = 0; k < count; k++) {
+                if(mStates.get(revealedSquares[k]) == COVERED) {
+                    setState(revealedSquares[k], UNCOVERED);
+                }
+            }
+            return;
+        }
+
+        int[] revealedCells = mRevealEngine.getRevealedCells();
+        int start = mRevealEngine.getRevealedStart();
+
+        for(int k = start; k < start + count; k++) {
+            int cell = revealedCells[k];
+
+            if(mStates.get(cell) == COVERED) {
+                setState(cell, UNCOVERED);
+            }
+        }
+    }
+
+    private void beginMove(int gesture, long index) {
+        mMoveGesture = gesture;
+        mMoveIndex = index;
+        mDeltaLog.beginMove(getCounters());
+    }
+
+    /**
+     * Ends the game if the move decided it, then records and reports the move.  Flags alone
+     * only decide the game when the player finishes it, otherwise moving flags around until
+     * the game ends would reveal where the mines are.
+     */
+    private void completeMove() {
+        if(!mIsGameFinished) {
+            if(mIsMineUncovered) {
+                endGame(false);
+            }
+            else if(mCoveredSafeCount == 0) {
+                endGame(true);
+            }
+        }
+        if(mDeltaLog.endMove(getCounters())) {
+            // Replays and journals only take ordinary boards, whose indices fit an int.
+            if(mReplayRecorder != null) {
+                mReplayRecorder.record(mMoveGesture, (int) mMoveIndex, getElapsedTime());
+            }
+            if(mJournal != null) {
+                mJournal.append(mMoveGesture, (int) mMoveIndex, this);
+            }
+        }
+        dispatchChanges();
+    }
+
+    private void endGame(boolean didWin) {
+        mIsGameFinished = true;
+        mDidWin = didWin;
+        stopTimer();
+
+        revealBoard();
+    }
+
+    /**
+     * Journals and reports squares and counters put back by an undo or redo.
+     */
+    private void restore(int gesture) {
+        boolean wasGameFinished = mIsGameFinished;
+
+        setCounters(mCounters);
+
+        if(!wasGameFinished && mIsGameFinished) {
+            stopTimer();
+        }
+
+        // The journal may need the changed squares, which are cleared once reported.
+        if(mJournal != null) {
+            mJournal.append(gesture, 0, this);
+        }
+        dispatchChanges();
+    }
+
+    /**
+     * Resumes a saved game on a board rebuilt by {@link SavedGame#createBoard()}.  Must be
+     * called before the first move.  Nothing is reported to the listener, as the views are
+     * expected to read the restored states when they are set up.
+     */
+    public void restore(SavedGame savedGame) throws InvalidArgumentException {
+        byte[] states = savedGame.getStates();
+
+        if(states.length != mCellCount) {
+            throw new InvalidArgumentException("Saved game is for a different board.");
+        }
+        mStates.copyFrom(states);
+        countSquares();
+
+        mMineFlagsRemainingCount = savedGame.getMineFlagsRemainingCount();
+        mIsGameFinished = savedGame.isGameFinished();
+        mDidWin = savedGame.didWin();
+
+        // A mine uncovered in an unfinished game would have ended it.
+        mIsMineUncovered = false;
+
+        mElapsedTime = savedGame.getElapsedTime();
+        mStartTime = 0;
+
+        mReportedFlagsRemainingCount = mMineFlagsRemainingCount;
+        mIsReportedGameFinished = mIsGameFinished;
+    }
+
+    /**
+     * Works out the covered safe squares and correct flags from the square states.
+     */
+    private void countSquares() {
+        mCoveredSafeCount = mCellCount - mBoard.getNumMines();
+        mCorrectFlagCount = 0;
+
+        for(long index = 0; index < mCellCount; index++) {
+            int state = mStates.get(index);
+
+            // Only flags can be placed before the mines are.
+            if(state != COVERED && mBoard.isGenerated()) {
+                boolean isMine = isMine(index);
+
+                if(isMine && state == FLAGGED_AS_MINE) {
+                    mCorrectFlagCount++;
+                }
+                else if(!isMine && state == UNCOVERED) {
+                    mCoveredSafeCount--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets a square without recording or reporting it, as a journaled undo or redo that reaches
+     * back before the undo history is replayed.  {@link #restoreCounters} must follow once every
+     * square it changed is set.
+     */
+    void replaceState(long index, int state) {
+        mStates.set(index, state);
+    }
+
+    /**
+     * Completes {@link #replaceState} with the flags remaining and status journaled alongside
+     * the squares, and recounts the rest.  The undo history is left as it is.
+     */
+    void restoreCounters(int flagsRemaining, int status) {
+        countSquares();
+
+        mMineFlagsRemainingCount = flagsRemaining;
+        mIsMineUncovered = (status & MINE_UNCOVERED) != 0;
+        mIsGameFinished = (status & GAME_FINISHED) != 0;
+        mDidWin = (status & WON) != 0;
+
+        mReportedFlagsRemainingCount = mMineFlagsRemainingCount;
+        mIsReportedGameFinished = mIsGameFinished;
+    }
+
+    /**
+     * Status bits as kept in the delta log, for {@link #restoreCounters}.
+     */
+    int getStatus() {
+        return (int) getCounters()[DeltaLog.STATUS];
+    }
+
+    /**
+     * Squares changed by the move, undo or redo being completed.
+     */
+    SquareList getChangedSquares() {
+        return mChangedSquares;
+    }
+
+    /**
+     * Copies the square states and counters, as needed to {@link #restoreState} this position.
+     */
+    void saveState(byte[] states, long[] counters) {
+        copyStates(states);
+        System.arraycopy(getCounters(), 0, counters, 0, DeltaLog.COUNTER_COUNT);
+    }
+
+    /**
+     * Jumps to a saved position without reporting to the listener.  The undo history is
+     * cleared, as it no longer leads to this position.
+     */
+    void restoreState(byte[] states, long[] counters) {
+        mStates.copyFrom(states);
+        setCounters(counters);
+        mChangedSquares.clear();
+        mDeltaLog = new DeltaLog();
+
+        mReportedFlagsRemainingCount = mMineFlagsRemainingCount;
+        mIsReportedGameFinished = mIsGameFinished;
+
+        // Flags saved before the mines were placed were not counted against them.
+        if(mBoard.isGenerated()) {
+            mCorrectFlagCount = countCorrectFlags();
+        }
+    }
+
+    private void setCounters(long[] counters) {
+        mMineFlagsRemainingCount = (int) counters[DeltaLog.FLAGS_REMAINING];
+        mCoveredSafeCount = counters[DeltaLog.COVERED_SAFE];
+        mCorrectFlagCount = (int) counters[DeltaLog.CORRECT_FLAGS];
+
+        int status = (int) counters[DeltaLog.STATUS];
+        mIsMineUncovered = (status & MINE_UNCOVERED) != 0;
+        mIsGameFinished = (status & GAME_FINISHED) != 0;
+        mDidWin = (status & WON) != 0;
+    }
+
+    private long[] getCounters() {
+        mCounters[DeltaLog.FLAGS_REMAINING] = mMineFlagsRemainingCount;
+        mCounters[DeltaLog.COVERED_SAFE] = mCoveredSafeCount;
+        mCounters[DeltaLog.CORRECT_FLAGS] = mCorrectFlagCount;
+        mCounters[DeltaLog.STATUS] = (mIsMineUncovered ? MINE_UNCOVERED : 0)
+                | (mIsGameFinished ? GAME_FINISHED : 0) | (mDidWin ? WON : 0);
+
+        return mCounters;
+    }
+
+    /**
+     * Uncovers every covered square and every wrongly flagged square.  A sparse board has far
+     * too many covered squares to list, so only its wrong flags are uncovered; its mines can
+     * be read from the board once the game is finished.
+     */
+    private void revealBoard() {
+        if(mBoard.isSparse()) {
+            for(long index : mStates.getFlaggedSquares()) {
+                if(!isMine(index)) {
+                    revealSquare(index, FLAGGED_AS_MINE);
+                }
+            }
+            return;
+        }
+
+        for(long index = 0; index < mCellCount; index++) {
+            int state = mStates.get(index);
+
+            if(state == COVERED || (state == FLAGGED_AS_MINE && !isMine(index))) {
+                revealSquare(index, state);
+            }
+        }
+    }
+
+    /**
+     * Uncovers a square as the game ends, leaving the running totals as they were.
+     */
+    private void revealSquare(long index, int state) {
+        mDeltaLog.record(index, state, UNCOVERED);
+        mStates.set(index, UNCOVERED);
+        mChangedSquares.add(index);
+    }
+
+    /**
+     * Reports the move's changes in one delta, if it made any.
+     */
+    private void dispatchChanges() {
+        mDelta.setChangedCount(mChangedSquares.size());
+
+        if(mMineFlagsRemainingCount != mReportedFlagsRemainingCount) {
+            mReportedFlagsRemainingCount = mMineFlagsRemainingCount;
+            mDelta.setMineFlagsRemainingCount(mMineFlagsRemainingCount);
+        }
+
+        if(mIsGameFinished != mIsReportedGameFinished) {
+            mIsReportedGameFinished = mIsGameFinished;
+            mDelta.setResult(!mIsGameFinished ? BoardDelta.RESUMED : mDidWin ? BoardDelta.WON : BoardDelta.LOST);
+        }
+
+        if(!mDelta.isEmpty()) {
+            mListener.onBoardChanged(mDelta);
+        }
+        mDelta.clear();
+        mChangedSquares.clear();
+    }
+
+    /**
+     * Counts the flags placed before any mine existed.
+     */
+    private void onBoardGenerated() {
+        mCorrectFlagCount += countCorrectFlags();
+        mDelta.setBoardGenerated();
+    }
+
+    private int countCorrectFlags() {
+        int count = 0;
+
+        for(long index : mStates.getFlaggedSquares()) {
+            if(isMine(index)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Moves a square to a new state, keeping the running totals in step.
+     */
+    private void setState(long index, int state) {
+        int previousState = mStates.get(index);
+
+        mDeltaLog.record(index, previousState, state);
+        mStates.set(index, state);
+        mChangedSquares.add(index);
+
+        // Before generation only flags can change, and they are recounted once mines exist.
+        if(mBoard.isGenerated()) {
+            if(isMine(index)) {
+                if(state == FLAGGED_AS_MINE) {
+                    mCorrectFlagCount++;
+                }
+                else if(previousState == FLAGGED_AS_MINE) {
+                    mCorrectFlagCount--;
+                }
+            }
+            else if(state == UNCOVERED) {
+                mCoveredSafeCount--;
+            }
+        }
+    }
+
+    public void startTimer() {
+        mStartTime = System.currentTimeMillis();
+    }
+
+    public void stopTimer() {
+        if(mStartTime > 0) {
+            mElapsedTime += System.currentTimeMillis() - mStartTime;
+
+            // Reset timer
+            mStartTime = 0;
+        }
+    }
+
+    public long getElapsedTime() {
+        // If the timer has been started, then add the time since it was started
+        // to the saved elapsed time.
+        long additionalRealTime = 0;
+
+        if(mStartTime > 0) {
+            additionalRealTime = System.currentTimeMillis() - mStartTime;
+        }
+        return mElapsedTime + additionalRealTime;
+    }
+
+    /**
+     * Sets the game time of a stopped timer.
+     */
+    void setElapsedTime(long elapsedTime) {
+        mElapsedTime = elapsedTime;
+    }
+
+    public boolean isTimerRunning() {
+        return mStartTime > 0;
+    }
+
+    public int getState(int xGridCoordinate, int yGridCoordinate) {
+        return mStates.get(toIndex(xGridCoordinate, yGridCoordinate));
+    }
+
+    public int getState(long index) {
+        return mStates.get(index);
+    }
+
+    /**
+     * Copies every square's state into {@code states}, which must hold one byte per square.
+     */
+    public void copyStates(byte[] states) {
+        mStates.copyTo(states);
+    }
+
+    /**
+     * Index of a square on a board small enough to index by int.
+     */
+    public int getIndex(int xGridCoordinate, int yGridCoordinate) {
+        return yGridCoordinate * mBoard.getWidth() + xGridCoordinate;
+    }
+
+    private long toIndex(int xGridCoordinate, int yGridCoordinate) {
+        return (long) yGridCoordinate * mBoard.getWidth() + xGridCoordinate;
+    }
+
+    private int getXGridCoordinate(long index) {
+        return (int) (index % mBoard.getWidth());
+    }
+
+    private int getYGridCoordinate(long index) {
+        return (int) (index / mBoard.getWidth());
+    }
+
+    private boolean isMine(long index) {
+        return mBoard.isMine(getXGridCoordinate(index), getYGridCoordinate(index));
+    }
+
+    public MineField getBoard() {
+        return mBoard;
+    }
+
+    public boolean isGameFinished() {
+        return mIsGameFinished;
+    }
+
+    /**
+     * Whether the player won.  Only meaningful once the game is finished.
+     */
+    public boolean didWin() {
+        return mDidWin;
+    }
+
+    public int getMineFlagsRemainingCount() {
+        return mMineFlagsRemainingCount;
+    }
+
+    /**
+     * Listener for engines that are only read, such as those replaying a game.
+     */
+    static final Listener SILENT_LISTENER = new Listener() {
+        @Override
+        public void onBoardChanged(BoardDelta delta) {
+        }
+    };
+
+    public interface Listener {
+        /**
+         * Everything the last move, undo or redo changed.  Moves that change nothing are not
+         * reported.
+         */
+        void onBoardChanged(BoardDelta delta);
+    }
+}
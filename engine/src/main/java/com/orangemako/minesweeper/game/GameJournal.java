@@ -0,0 +1,511 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.Board;
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Autosave of the game in play, kept in a memory-mapped file so it survives the process
+ * being killed.
+ *
+ * The file holds two {@link SavedGame} slots, each with its own area of move records.  Each
+ * kept move is written as one 16 byte record straight into the mapping.  Nothing is flushed or
+ * serialized on the move path, as the kernel keeps the written pages once the process dies.
+ * A power loss before the kernel writes them back can still lose recent moves.
+ *
+ * When the records fill up, the move path only copies the game's position.  A writer thread
+ * encodes it into the slot not in use and then bumps the header's generation, which switches
+ * slots and records in one int write.  Moves made meanwhile go to the new slot's records.
+ * Records carry a check of their generation and position, so stale records and one torn by
+ * the process dying mid-write are never replayed.  A crash during compaction leaves the
+ * previous slot and its records in force, losing only the moves made since it began.
+ *
+ * Undos and redos are records too.  One that reaches back before the slot's position, which
+ * the replaying engine has no history for, is written as the squares it changed and the
+ * counters it left, then a marker holding the undo depth relative to the slot.
+ */
+public class GameJournal {
+    static final int MAGIC = 0x4D534A4E;
+    static final int FORMAT_VERSION = 2;
+
+    static final int RECORD_CAPACITY = 4096;
+
+    // Gestures beyond the replay's, as undo and redo are journaled too.
+    static final int UNDO = 3;
+    static final int REDO = 4;
+
+    // Records of an undo or redo reaching before the slot's position: each changed square with
+    // its new state, then the flags remaining and status, then one of the markers.
+    static final int SQUARE = 5;
+    static final int COUNTERS = 6;
+    static final int UNDO_BEFORE_BASE = 7;
+    static final int REDO_BEFORE_BASE = 8;
+
+    private static final int GESTURE_BITS = 8;
+    private static final int GESTURE_MASK = (1 << GESTURE_BITS) - 1;
+
+    // Header layout: magic, format version, slot capacity, generation.
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int SLOT_CAPACITY_OFFSET = 8;
+    private static final int GENERATION_OFFSET = 12;
+    private static final int HEADER_SIZE = 16;
+
+    // Record layout: square, check, then game time shifted left over the gesture.
+    private static final int RECORD_SIZE = 16;
+    private static final int RECORDS_OFFSET = HEADER_SIZE;
+    private static final int RECORDS_SIZE = RECORD_CAPACITY * RECORD_SIZE;
+    private static final int SLOTS_OFFSET = RECORDS_OFFSET + 2 * RECORDS_SIZE;
+
+    // Slot layout: length and CRC of the saved game, then the saved game.
+    private static final int SLOT_HEADER_SIZE = 8;
+
+    // Saved game header, with every varint at its longest.
+    private static final int SAVED_GAME_HEADER_SIZE = 64;
+
+    private RandomAccessFile mFile;
+    private MappedByteBuffer mBuffer;
+    private int mSlotCapacity;
+
+    // Game recovered when the journal was opened.
+    private SavedGame mSavedGame;
+
+    // Game being journaled, or null once the journal is closed.
+    private Board mBoard;
+    private GameEngine mEngine;
+
+    // Generation the records are being written for.  Ahead of the header's while a
+    // compaction is being written.
+    private int mGeneration;
+
+    // Records written, moves in force since the last compaction, and every move held for redo.
+    private int mRecordCount;
+    private int mMoveCount;
+    private int mRedoLimit;
+
+    // Signed distance from the slot's position of the undos and redos the replaying engine
+    // has no history for.
+    private int mUndoDepth;
+
+    // Writes the latest compaction, or null once it is written.
+    private Thread mCompactionThread;
+
+    private GameJournal() {
+    }
+
+    /**
+     * Opens the journal at {@code file}, creating it if needed, and recovers the game it holds.
+     */
+    public static GameJournal open(File file) throws InitializationException {
+        GameJournal journal = new GameJournal();
+
+        try {
+            journal.mFile = new RandomAccessFile(file, "rw");
+
+            if(journal.mFile.length() > SLOTS_OFFSET) {
+                journal.map(journal.mFile.length());
+                journal.recover();
+            }
+        }
+        catch (IOException e) {
+            journal.close();
+            throw new InitializationException("Unable to open game journal.", e);
+        }
+
+        return journal;
+    }
+
+    /**
+     * The game in play when the journal was last written, or null if it held none.
+     */
+    public SavedGame getSavedGame() {
+        return mSavedGame;
+    }
+
+    /**
+     * Whether a game is being journaled, and so would be recovered by the next {@link #open}.
+     */
+    public synchronized boolean isJournaling() {
+        return mEngine != null;
+    }
+
+    /**
+     * Journals {@code engine}'s game from now on, starting from its current position.  Any game
+     * journaled before is replaced.
+     *
+     * @param board the board {@code engine} was created with
+     */
+    public synchronized void start(Board board, GameEngine engine) throws InitializationException {
+        if(mFile == null) {
+            throw new InitializationException("Game journal is closed.");
+        }
+
+        long slotCapacity = SAVED_GAME_HEADER_SIZE + board.getCellCount() / 4 + 1;
+
+        if(getSize(slotCapacity) > Integer.MAX_VALUE) {
+            throw new InitializationException("Board is too large to journal.");
+        }
+
+        // A compaction of the previous game must not land after this one.
+        awaitCompaction();
+
+        try {
+            // Laying the file out again loses the previous game if the process dies before the
+            // first compaction, but that game is being replaced anyway.
+            if(!hasHeader() || slotCapacity > mSlotCapacity || mBuffer.capacity() < getSize(mSlotCapacity)) {
+                mSlotCapacity = (int) slotCapacity;
+                map(getSize(mSlotCapacity));
+
+                mBuffer.putInt(MAGIC_OFFSET, MAGIC);
+                mBuffer.putInt(VERSION_OFFSET, FORMAT_VERSION);
+                mBuffer.putInt(SLOT_CAPACITY_OFFSET, mSlotCapacity);
+            }
+        }
+        catch (IOException e) {
+            throw new InitializationException("Unable to grow game journal.", e);
+        }
+
+        mBoard = board;
+        mEngine = engine;
+        engine.setJournal(this);
+
+        compact();
+        awaitCompaction();
+    }
+
+    /**
+     * Stops journaling.  Moves the game takes afterwards are not written.
+     */
+    public synchronized void close() {
+        // The next journal opened on the file must find the compaction whole.
+        awaitCompaction();
+
+        mBoard = null;
+        mEngine = null;
+        mBuffer = null;
+
+        if(mFile != null) {
+            try {
+                mFile.close();
+            }
+            catch (IOException e) {
+                // The mapping stays valid, and nothing is written through it again.
+            }
+            mFile = null;
+        }
+    }
+
+    /**
+     * Appends one kept move, undo or redo.  Called by the engine as it completes.
+     */
+    synchronized void append(int gesture, int index, GameEngine engine) {
+        // A game replaced while its thread winds down must not write over the new one.
+        if(engine != mEngine) {
+            return;
+        }
+
+        if(gesture == UNDO && mMoveCount == 0
+                || gesture == REDO && (mUndoDepth < 0 || mMoveCount == mRedoLimit)) {
+            appendBeforeBase(gesture == UNDO, engine);
+            return;
+        }
+
+        if(mRecordCount == RECORD_CAPACITY) {
+            compact();
+            return;
+        }
+
+        write(index, engine.getElapsedTime() << GESTURE_BITS | gesture);
+
+        if(gesture == UNDO) {
+            mMoveCount--;
+        }
+        else if(gesture == REDO) {
+            mMoveCount++;
+        }
+        else {
+            mRedoLimit = ++mMoveCount;
+            mUndoDepth = 0;
+        }
+    }
+
+    /**
+     * Appends an undo or redo the replaying engine cannot follow, as the squares it changed.
+     */
+    private void appendBeforeBase(boolean isUndo, GameEngine engine) {
+        SquareList changedSquares = engine.getChangedSquares();
+        int count = changedSquares.size();
+
+        if(mRecordCount + count + 2 > RECORD_CAPACITY) {
+            compact();
+            return;
+        }
+
+        for(int k = 0; k < count; k++) {
+            long square = changedSquares.get(k);
+            write((int) square, (long) engine.getState(square) << GESTURE_BITS | SQUARE);
+        }
+        write(engine.getMineFlagsRemainingCount(), (long) engine.getStatus() << GESTURE_BITS | COUNTERS);
+
+        mUndoDepth += isUndo ? -1 : 1;
+        write(mUndoDepth, engine.getElapsedTime() << GESTURE_BITS | (isUndo ? UNDO_BEFORE_BASE : REDO_BEFORE_BASE));
+    }
+
+    private void write(int index, long move) {
+        int offset = getRecordsOffset(mGeneration) + mRecordCount * RECORD_SIZE;
+
+        // The check goes last, so a record is only valid once it is whole.
+        mBuffer.putInt(offset, index);
+        mBuffer.putLong(offset + 8, move);
+        mBuffer.putInt(offset + 4, check(mGeneration, mRecordCount, index, move));
+        mRecordCount++;
+    }
+
+    /**
+     * Copies the game's current position and hands it to a writer thread, which encodes it into
+     * the slot not in use and then switches to it.  Records from here on are written for the
+     * new slot.
+     */
+    private void compact() {
+        // Only one compaction is written at a time, and the records for the next are about to
+        // be reused.  Filling a whole area of records while one is written is rare.
+        awaitCompaction();
+
+        final Board board = mBoard;
+        final GameSnapshot snapshot = new GameSnapshot(board.getCellCount());
+        snapshot.copyFrom(mEngine, 0);
+
+        final int generation = mGeneration + 1;
+        final int offset = getSlotOffset(generation);
+
+        // The writer keeps its own view of the mapping, as close() drops this one.
+        final ByteBuffer buffer = mBuffer.duplicate();
+
+        mGeneration = generation;
+        mRecordCount = 0;
+        mMoveCount = 0;
+        mRedoLimit = 0;
+        mUndoDepth = 0;
+
+        mCompactionThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] savedGame;
+
+                try {
+                    savedGame = SavedGame.encode(board, snapshot);
+                }
+                catch (InvalidArgumentException e) {
+                    // Unsaveable boards are caught by the capacity check, so this leaves the slot as is.
+                    return;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(savedGame, 0, savedGame.length);
+
+                buffer.putInt(offset, savedGame.length);
+                buffer.putInt(offset + 4, (int) crc.getValue());
+                buffer.position(offset + SLOT_HEADER_SIZE);
+                buffer.put(savedGame);
+
+                buffer.putInt(GENERATION_OFFSET, generation);
+            }
+        }, "GameJournal");
+        mCompactionThread.start();
+    }
+
+    /**
+     * Waits for the compaction being written, if any.
+     */
+    synchronized void awaitCompaction() {
+        if(mCompactionThread == null) {
+            return;
+        }
+
+        boolean isInterrupted = false;
+
+        while(true) {
+            try {
+                mCompactionThread.join();
+                break;
+            }
+            catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        mCompactionThread = null;
+
+        if(isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void recover() {
+        if(!hasHeader()) {
+            return;
+        }
+
+        mSlotCapacity = mBuffer.getInt(SLOT_CAPACITY_OFFSET);
+        mGeneration = mBuffer.getInt(GENERATION_OFFSET);
+
+        int offset = getSlotOffset(mGeneration);
+        int length = mBuffer.getInt(offset);
+
+        if(mSlotCapacity <= 0 || getSize(mSlotCapacity) > mBuffer.capacity() || length <= 0 || length > mSlotCapacity) {
+            return;
+        }
+
+        byte[] savedGame = new byte[length];
+        mBuffer.position(offset + SLOT_HEADER_SIZE);
+        mBuffer.get(savedGame);
+
+        CRC32 crc = new CRC32();
+        crc.update(savedGame, 0, length);
+
+        if((int) crc.getValue() != mBuffer.getInt(offset + 4)) {
+            return;
+        }
+
+        try {
+            mSavedGame = replay(SavedGame.decode(savedGame));
+        }
+        catch (InvalidArgumentException | InitializationException e) {
+            // Nothing recoverable, so a new game is started instead.
+            mSavedGame = null;
+        }
+    }
+
+    /**
+     * Plays the records written since the last compaction on top of {@code savedGame}.
+     */
+    private SavedGame replay(SavedGame savedGame) throws InvalidArgumentException, InitializationException {
+        Board board = savedGame.createBoard();
+        GameEngine engine = new GameEngine(board, GameEngine.SILENT_LISTENER);
+        engine.restore(savedGame);
+
+        long time = savedGame.getElapsedTime();
+        int recordsOffset = getRecordsOffset(mGeneration);
+
+        // Squares and counters of an undo or redo before the slot's position, set once its
+        // marker shows every one of them was written.
+        SquareList squares = new SquareList();
+        int flagsRemaining = 0;
+        int status = 0;
+        int undoDepth = 0;
+
+        for(int record = 0; record < RECORD_CAPACITY; record++) {
+            int offset = recordsOffset + record * RECORD_SIZE;
+            int index = mBuffer.getInt(offset);
+            long move = mBuffer.getLong(offset + 8);
+            int gesture = (int) (move & GESTURE_MASK);
+
+            if(mBuffer.getInt(offset + 4) != check(mGeneration, record, index, move)) {
+                break;
+            }
+
+            if(gesture == COUNTERS) {
+                flagsRemaining = index;
+                status = (int) (move >>> GESTURE_BITS);
+                continue;
+            }
+
+            if(gesture == UNDO_BEFORE_BASE || gesture == REDO_BEFORE_BASE) {
+                undoDepth += gesture == UNDO_BEFORE_BASE ? -1 : 1;
+
+                if(index != undoDepth) {
+                    break;
+                }
+
+                for(int k = 0; k < squares.size(); k++) {
+                    engine.replaceState(squares.get(k) >> 2, (int) (squares.get(k) & 0x3));
+                }
+                engine.restoreCounters(flagsRemaining, status);
+                squares.clear();
+            }
+            else if(index < 0 || index >= board.getCellCount()) {
+                break;
+            }
+            else if(gesture == SQUARE) {
+                squares.add((long) index << 2 | (move >>> GESTURE_BITS));
+                continue;
+            }
+            else {
+                int x = board.getXGridCoordinate(index);
+                int y = board.getYGridCoordinate(index);
+
+                switch(gesture) {
+                    case Replay.CLICK:
+                        engine.toggleFlagOrChord(x, y);
+                        undoDepth = 0;
+                        break;
+                    case Replay.LONG_CLICK:
+                        engine.uncoverOrChord(x, y);
+                        undoDepth = 0;
+                        break;
+                    case Replay.FINISH:
+                        engine.finish();
+                        undoDepth = 0;
+                        break;
+                    case UNDO:
+                        engine.undo();
+                        break;
+                    case REDO:
+                        engine.redo();
+                        break;
+                }
+            }
+            time = move >>> GESTURE_BITS;
+        }
+
+        // The timer is only as recent as the last move.
+        engine.setElapsedTime(time);
+
+        return SavedGame.decode(SavedGame.encode(board, engine));
+    }
+
+    private void map(long size) throws IOException {
+        mBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private boolean hasHeader() {
+        return mBuffer != null
+                && mBuffer.getInt(MAGIC_OFFSET) == MAGIC
+                && mBuffer.getInt(VERSION_OFFSET) == FORMAT_VERSION;
+    }
+
+    private static long getSize(long slotCapacity) {
+        return SLOTS_OFFSET + 2 * (SLOT_HEADER_SIZE + slotCapacity);
+    }
+
+    private static int getRecordsOffset(int generation) {
+        return RECORDS_OFFSET + (generation & 1) * RECORDS_SIZE;
+    }
+
+    private int getSlotOffset(int generation) {
+        return SLOTS_OFFSET + (generation & 1) * (SLOT_HEADER_SIZE + mSlotCapacity);
+    }
+
+    /**
+     * Mixes a record with its generation and position.  Never zero, so a fresh file holds no
+     * valid records.
+     */
+    static int check(int generation, int record, int index, long move) {
+        int hash = generation * 0x9E3779B9 + record;
+        hash = hash * 31 + index;
+        hash = hash * 31 + (int) (move ^ (move >>> 32));
+
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+
+        return hash | 1;
+    }
+}
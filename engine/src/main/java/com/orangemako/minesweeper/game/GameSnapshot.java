@@ -0,0 +1,161 @@
+package com.orangemako.minesweeper.game;
+
+/**
+ * Copy of a game's player state at one point in time.
+ *
+ * The reader of a {@link GameThread} keeps one, brought up to date with the squares each
+ * publish changed.  It also lists the squares changed since the reader last cleared them, so
+ * views only need to update those.
+ */
+public class GameSnapshot {
+    private byte[] mStates;
+    private long mVersion;
+
+    // Squares changed since the last clearChanges(), or every square once there are too many to list.
+    private SquareList mChangedSquares = new SquareList();
+    private boolean mIsEveryStateChanged;
+
+    private boolean mIsBoardGenerated;
+    private boolean mIsGameFinished;
+    private boolean mDidWin;
+    private int mMineFlagsRemainingCount;
+
+    // Timer as of the publish time, so readers can keep a running timer ticking.
+    private long mElapsedTime;
+    private boolean mIsTimerRunning;
+    private long mPublishTime;
+
+    GameSnapshot(int cellCount) {
+        mStates = new byte[cellCount];
+    }
+
+    /**
+     * Only called by the logic thread, while no reader can see this snapshot.
+     */
+    void copyFrom(GameEngine engine, long version) {
+        engine.copyStates(mStates);
+        mVersion = version;
+
+        mIsBoardGenerated = engine.getBoard().isGenerated();
+        mIsGameFinished = engine.isGameFinished();
+        mDidWin = engine.didWin();
+        mMineFlagsRemainingCount = engine.getMineFlagsRemainingCount();
+
+        mElapsedTime = engine.getElapsedTime();
+        mIsTimerRunning = engine.isTimerRunning();
+        mPublishTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Brings this snapshot up to date with a publish.  Only called by the reader.
+     */
+    void apply(SnapshotDelta delta) {
+        if(delta.isEveryState()) {
+            byte[] states = delta.getStates();
+
+            for(int index = 0; index < mStates.length; index++) {
+                if(mStates[index] != states[index]) {
+                    setState(index, states[index]);
+                }
+            }
+        }
+        else {
+            for(int i = 0; i < delta.getChangeCount(); i++) {
+                setState(delta.getChangedSquare(i), delta.getChangedState(i));
+            }
+        }
+        mVersion = delta.getVersion();
+
+        mIsBoardGenerated = delta.isBoardGenerated();
+        mIsGameFinished = delta.isGameFinished();
+        mDidWin = delta.didWin();
+        mMineFlagsRemainingCount = delta.getMineFlagsRemainingCount();
+
+        mElapsedTime = delta.getElapsedTime();
+        mIsTimerRunning = delta.isTimerRunning();
+        mPublishTime = delta.getPublishTime();
+    }
+
+    private void setState(int index, int state) {
+        mStates[index] = (byte) state;
+
+        if(mIsEveryStateChanged) {
+            return;
+        }
+
+        // Listing more squares than the board holds would cost more than checking them all.
+        if(mChangedSquares.size() == mStates.length) {
+            mIsEveryStateChanged = true;
+            mChangedSquares.clear();
+        }
+        else {
+            mChangedSquares.add(index);
+        }
+    }
+
+    /**
+     * Number of squares changed since {@link #clearChanges()}, which may list a square more
+     * than once.  Meaningless once {@link #isEveryStateChanged()}.
+     */
+    public int getChangedCount() {
+        return mChangedSquares.size();
+    }
+
+    public int getChangedSquare(int i) {
+        return (int) mChangedSquares.get(i);
+    }
+
+    /**
+     * Whether too many squares changed to list, so every square should be checked.
+     */
+    public boolean isEveryStateChanged() {
+        return mIsEveryStateChanged;
+    }
+
+    public void clearChanges() {
+        mChangedSquares.clear();
+        mIsEveryStateChanged = false;
+    }
+
+    byte[] getStates() {
+        return mStates;
+    }
+
+    public int getState(int index) {
+        return mStates[index];
+    }
+
+    public int getCellCount() {
+        return mStates.length;
+    }
+
+    /**
+     * Increases with every publish, so readers can tell whether anything changed.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    public boolean isBoardGenerated() {
+        return mIsBoardGenerated;
+    }
+
+    public boolean isGameFinished() {
+        return mIsGameFinished;
+    }
+
+    public boolean didWin() {
+        return mDidWin;
+    }
+
+    public int getMineFlagsRemainingCount() {
+        return mMineFlagsRemainingCount;
+    }
+
+    public long getElapsedTime() {
+        if(mIsTimerRunning) {
+            return mElapsedTime + System.currentTimeMillis() - mPublishTime;
+        }
+        return mElapsedTime;
+    }
+}
@@ -0,0 +1,314 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.Board;
+import com.orangemako.minesweeper.board.MineField;
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link GameEngine} on its own thread, the only thread that ever changes the game.
+ *
+ * Moves are posted from any thread onto a lock-free queue.  Once the queue is drained the
+ * logic thread publishes the squares changed since the reader last took a publish, so a long
+ * reveal never holds up the thread that posted the move.  The reader applies them to its
+ * {@link GameSnapshot}, costing each side time in proportion to what changed rather than to
+ * the board.
+ *
+ * Publishes rotate through three buffers: the logic thread fills one while the reader holds
+ * another, and the third is handed between them with a single atomic swap.  Neither side
+ * waits for the other and a publish never changes while it is read.  Until the reader takes
+ * a publish, each one repeats the changes of the last, so a publish replaced unread loses
+ * nothing.
+ */
+public class GameThread {
+    // Moves
+    static final int TOGGLE_FLAG_OR_CHORD = 0;
+    static final int UNCOVER_OR_CHORD = 1;
+    static final int FINISH = 2;
+    static final int START_TIMER = 3;
+    static final int STOP_TIMER = 4;
+    static final int UNDO = 5;
+    static final int REDO = 6;
+    static final int FLAG = 7;
+
+    // Marks the shared buffer as published but not yet taken by the reader.
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private GameEngine mEngine;
+    private Listener mListener;
+    private ConcurrentLinkedQueue<Move> mMoves = new ConcurrentLinkedQueue<>();
+
+    private SnapshotDelta[] mDeltas = new SnapshotDelta[3];
+    private long mVersion;
+
+    // Packed changes not yet known to be taken by the reader, and how many of them went into
+    // the last publish.  Once they outnumber the squares, every square's state is sent instead.
+    private SquareList mPendingChanges = new SquareList();
+    private int mPublishedCount;
+    private boolean mIsEveryStatePending;
+    private boolean mWasEveryStatePublished;
+    private int mCellCount;
+
+    // Kept by the reader, and only touched from its thread once the logic thread has started.
+    private GameSnapshot mSnapshot;
+
+    // Buffer owned by the logic thread, buffer shared with the reader, buffer owned by the reader.
+    private int mBackIndex = 2;
+    private AtomicInteger mSharedIndex = new AtomicInteger(1);
+    private int mFrontIndex = 0;
+
+    private Thread mThread;
+    private volatile boolean mIsQuitting = false;
+
+    public GameThread(MineField board, Listener listener) throws InitializationException {
+        this(board, listener, null);
+    }
+
+    /**
+     * @param replayRecorder records the game's moves, or null
+     */
+    public GameThread(MineField board, Listener listener, ReplayRecorder replayRecorder)
+            throws InitializationException {
+        if(listener == null) {
+            throw new InitializationException("Listener required.");
+        }
+
+        long cellCount = (long) board.getWidth() * board.getHeight();
+
+        // Snapshots hold a byte for every square.
+        if(board.isSparse() || cellCount > Board.MAX_CELL_COUNT) {
+            throw new InitializationException("Board is too large to run on a logic thread.");
+        }
+        mListener = listener;
+
+        // Counters are read from the engine as it publishes, so only the squares need relaying.
+        mEngine = new GameEngine(board, new GameEngine.Listener() {
+            @Override
+            public void onBoardChanged(BoardDelta delta) {
+                addPendingChanges(delta);
+            }
+        });
+
+        mEngine.setReplayRecorder(replayRecorder);
+
+        mCellCount = (int) cellCount;
+
+        for(int i = 0; i < mDeltas.length; i++) {
+            mDeltas[i] = new SnapshotDelta();
+        }
+        mSnapshot = new GameSnapshot(mCellCount);
+        mSnapshot.copyFrom(mEngine, mVersion);
+    }
+
+    /**
+     * Resumes a saved game.  Must be called before {@link #start()}.
+     */
+    public void restore(SavedGame savedGame) throws InvalidArgumentException {
+        mEngine.restore(savedGame);
+        mSnapshot.copyFrom(mEngine, mVersion);
+    }
+
+    /**
+     * Journals the game from its current position.  Must be called before {@link #start()}.
+     *
+     * @param board the board this thread's game was created with
+     */
+    public void startJournal(GameJournal journal, Board board) throws InitializationException {
+        journal.start(board, mEngine);
+    }
+
+    public void start() {
+        if(mThread == null) {
+            mThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    loop();
+                }
+            }, "GameThread");
+            mThread.start();
+        }
+    }
+
+    /**
+     * Stops the logic thread once the move in progress completes.  Moves still queued are dropped.
+     */
+    public void quit() {
+        mIsQuitting = true;
+
+        if(mThread != null) {
+            LockSupport.unpark(mThread);
+        }
+    }
+
+    public void toggleFlagOrChord(int xGridCoordinate, int yGridCoordinate) {
+        post(TOGGLE_FLAG_OR_CHORD, xGridCoordinate, yGridCoordinate);
+    }
+
+    public void uncoverOrChord(int xGridCoordinate, int yGridCoordinate) {
+        post(UNCOVER_OR_CHORD, xGridCoordinate, yGridCoordinate);
+    }
+
+    public void flag(int xGridCoordinate, int yGridCoordinate) {
+        post(FLAG, xGridCoordinate, yGridCoordinate);
+    }
+
+    public void finish() {
+        post(FINISH, 0, 0);
+    }
+
+    public void undo() {
+        post(UNDO, 0, 0);
+    }
+
+    public void redo() {
+        post(REDO, 0, 0);
+    }
+
+    public void startTimer() {
+        post(START_TIMER, 0, 0);
+    }
+
+    public void stopTimer() {
+        post(STOP_TIMER, 0, 0);
+    }
+
+    /**
+     * The reader's snapshot, brought up to date with the latest publish.  Must only be called
+     * from one reader thread, and the snapshot only changes when that thread calls this again.
+     */
+    public GameSnapshot getSnapshot() {
+        if((mSharedIndex.get() & FRESH) != 0) {
+            mFrontIndex = mSharedIndex.getAndSet(mFrontIndex) & INDEX_MASK;
+            mSnapshot.apply(mDeltas[mFrontIndex]);
+        }
+        return mSnapshot;
+    }
+
+    private void post(int type, int xGridCoordinate, int yGridCoordinate) {
+        mMoves.offer(new Move(type, xGridCoordinate, yGridCoordinate));
+
+        if(mThread != null) {
+            LockSupport.unpark(mThread);
+        }
+    }
+
+    private void loop() {
+        boolean hasChanges = false;
+
+        while(!mIsQuitting) {
+            Move move = mMoves.poll();
+
+            if(move != null) {
+                apply(move);
+                hasChanges = true;
+            }
+            else {
+                if(hasChanges) {
+                    publish();
+                    hasChanges = false;
+                }
+
+                // A move posted since the poll leaves a permit, so this returns straight away.
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    private void apply(Move move) {
+        try {
+            switch(move.mType) {
+                case TOGGLE_FLAG_OR_CHORD:
+                    mEngine.toggleFlagOrChord(move.mXGridCoordinate, move.mYGridCoordinate);
+                    break;
+                case UNCOVER_OR_CHORD:
+                    mEngine.uncoverOrChord(move.mXGridCoordinate, move.mYGridCoordinate);
+                    break;
+                case FLAG:
+                    mEngine.flag(move.mXGridCoordinate, move.mYGridCoordinate);
+                    break;
+                case FINISH:
+                    mEngine.finish();
+                    break;
+                case START_TIMER:
+                    mEngine.startTimer();
+                    break;
+                case STOP_TIMER:
+                    mEngine.stopTimer();
+                    break;
+                case UNDO:
+                    mEngine.undo();
+                    break;
+                case REDO:
+                    mEngine.redo();
+                    break;
+            }
+        }
+        catch (InitializationException e) {
+            mListener.onMoveFailed(e);
+        }
+    }
+
+    private void addPendingChanges(BoardDelta delta) {
+        for(int i = 0; i < delta.getChangedCount(); i++) {
+            mPendingChanges.add(SnapshotDelta.pack(delta.getChangedSquare(i), delta.getChangedState(i)));
+        }
+
+        // A reader this far behind is better off comparing every square, and only the publishes
+        // from here on send them all.
+        if(mPendingChanges.size() > mCellCount) {
+            mIsEveryStatePending = true;
+            mWasEveryStatePublished = false;
+            mPendingChanges.clear();
+            mPublishedCount = 0;
+        }
+    }
+
+    private void publish() {
+        // The reader took the last publish, so the changes it carried no longer need sending.
+        // Taking one just after this check only means it sees some changes twice, in order.
+        if((mSharedIndex.get() & FRESH) == 0) {
+            mPendingChanges.removeFirst(mPublishedCount);
+
+            if(mWasEveryStatePublished) {
+                mIsEveryStatePending = false;
+            }
+        }
+
+        mDeltas[mBackIndex].copyFrom(mEngine, mIsEveryStatePending ? null : mPendingChanges, ++mVersion);
+        mPublishedCount = mPendingChanges.size();
+        mWasEveryStatePublished = mIsEveryStatePending;
+
+        mBackIndex = mSharedIndex.getAndSet(mBackIndex | FRESH) & INDEX_MASK;
+
+        mListener.onSnapshotPublished();
+    }
+
+    static class Move {
+        int mType;
+        int mXGridCoordinate;
+        int mYGridCoordinate;
+
+        Move(int type, int xGridCoordinate, int yGridCoordinate) {
+            mType = type;
+            mXGridCoordinate = xGridCoordinate;
+            mYGridCoordinate = yGridCoordinate;
+        }
+    }
+
+    /**
+     * Called on the logic thread.
+     */
+    public interface Listener {
+        /**
+         * A new snapshot is ready for {@link #getSnapshot()}.
+         */
+        void onSnapshotPublished();
+
+        void onMoveFailed(InitializationException e);
+    }
+}
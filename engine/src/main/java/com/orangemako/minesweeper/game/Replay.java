@@ -0,0 +1,155 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.Board;
+import com.orangemako.minesweeper.board.Topology;
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+/**
+ * A recorded game: the board's seed and settings, followed by every move the player kept.
+ *
+ * Each move is two varints.  The first is the game time in milliseconds since the previous
+ * move.  The second is the square index shifted left by two, with the gesture in the low
+ * bits.  A typical move takes three or four bytes.  Boards are rebuilt with the default
+ * random source, so games on boards with a custom one do not replay.
+ */
+public class Replay {
+    // Gestures
+    public static final int CLICK = 0;
+    public static final int LONG_CLICK = 1;
+    public static final int FINISH = 2;
+
+    static final int GESTURE_BITS = 2;
+    static final int GESTURE_MASK = (1 << GESTURE_BITS) - 1;
+
+    static final int FORMAT_VERSION = 1;
+
+    // Topologies by their id in the format.  New topologies are only ever appended.
+    static final Topology[] TOPOLOGIES = {Topology.SQUARE, Topology.TORUS, Topology.HEX};
+
+    private int mWidth;
+    private int mHeight;
+    private int mNumMines;
+    private Topology mTopology;
+    private long mSeed;
+    private boolean mIsDeferred;
+
+    private byte[] mMoves;
+    private int mMoveCount;
+
+    Replay(int width, int height, int numMines, Topology topology, long seed, boolean isDeferred,
+           byte[] moves, int moveCount) {
+        mWidth = width;
+        mHeight = height;
+        mNumMines = numMines;
+        mTopology = topology;
+        mSeed = seed;
+        mIsDeferred = isDeferred;
+        mMoves = moves;
+        mMoveCount = moveCount;
+    }
+
+    /**
+     * Builds a new board with the recorded game's mines, not yet played.
+     */
+    public Board createBoard() throws InvalidArgumentException, InitializationException {
+        return new Board.Builder()
+                .width(mWidth)
+                .height(mHeight)
+                .numMines(mNumMines)
+                .topology(mTopology)
+                .seed(mSeed)
+                .deferred(mIsDeferred)
+                .build();
+    }
+
+    public byte[] toByteArray() {
+        VarintBuffer buffer = new VarintBuffer();
+
+        buffer.writeVarint(FORMAT_VERSION);
+        buffer.writeVarint(mWidth);
+        buffer.writeVarint(mHeight);
+        buffer.writeVarint(mNumMines);
+        buffer.writeVarint(getTopologyId(mTopology));
+        buffer.writeVarint(mIsDeferred ? 1 : 0);
+        buffer.writeLong(mSeed);
+        buffer.writeVarint(mMoveCount);
+        buffer.writeVarint(mMoves.length);
+        buffer.writeBytes(mMoves, 0, mMoves.length);
+
+        return buffer.toByteArray();
+    }
+
+    public static Replay fromByteArray(byte[] bytes) throws InvalidArgumentException {
+        VarintBuffer buffer = new VarintBuffer(bytes, bytes.length);
+
+        int version = buffer.readInt();
+
+        if(version != FORMAT_VERSION) {
+            throw new InvalidArgumentException("Unsupported replay format " + version + ".");
+        }
+
+        int width = buffer.readInt();
+        int height = buffer.readInt();
+        int numMines = buffer.readInt();
+        int topologyId = buffer.readInt();
+
+        if(topologyId >= TOPOLOGIES.length) {
+            throw new InvalidArgumentException("Unknown topology " + topologyId + ".");
+        }
+
+        boolean isDeferred = buffer.readInt() != 0;
+        long seed = buffer.readLong();
+        int moveCount = buffer.readInt();
+        int movesLength = buffer.readInt();
+
+        if(movesLength > bytes.length - buffer.getPosition()) {
+            throw new InvalidArgumentException("Replay ends before its moves.");
+        }
+
+        byte[] moves = new byte[movesLength];
+        buffer.readBytes(moves, 0, movesLength);
+
+        return new Replay(width, height, numMines, TOPOLOGIES[topologyId], seed, isDeferred, moves, moveCount);
+    }
+
+    /**
+     * @return The topology's id in the format, or -1 if it cannot be recorded.
+     */
+    static int getTopologyId(Topology topology) {
+        for(int id = 0; id < TOPOLOGIES.length; id++) {
+            if(TOPOLOGIES[id] == topology) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    byte[] getMoves() {
+        return mMoves;
+    }
+
+    public int getMoveCount() {
+        return mMoveCount;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getNumMines() {
+        return mNumMines;
+    }
+
+    public Topology getTopology() {
+        return mTopology;
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+}
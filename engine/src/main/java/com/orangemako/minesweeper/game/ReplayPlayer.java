@@ -0,0 +1,199 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.Board;
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays a {@link Replay} back through a {@link GameEngine}, one move at a time or by seeking.
+ *
+ * Building the player runs the whole replay once, keeping a keyframe of the game at a fixed
+ * interval of moves.  A seek then costs one keyframe restore plus less than one interval of
+ * moves, wherever it lands.  Seeking forward within the current interval skips the restore.
+ *
+ * The interval is at least {@link #MIN_KEYFRAME_INTERVAL} moves, and grows on large boards
+ * to a quarter of the square count.  Keyframes then take at most about four bytes per move,
+ * and the moves replayed after a restore cost no more than the restore itself.
+ */
+public class ReplayPlayer {
+    static final int MIN_KEYFRAME_INTERVAL = 256;
+
+    private Replay mReplay;
+    private Board mBoard;
+    private GameEngine mEngine;
+    private VarintBuffer mMoves;
+
+    // Moves applied so far, and the game time of the last one.
+    private int mPosition;
+    private long mTime;
+
+    private int mKeyframeInterval;
+    private List<Keyframe> mKeyframes = new ArrayList<>();
+
+    public ReplayPlayer(Replay replay) throws InvalidArgumentException, InitializationException {
+        if(replay == null) {
+            throw new InvalidArgumentException("Replay required.");
+        }
+        mReplay = replay;
+        mBoard = replay.createBoard();
+        mMoves = new VarintBuffer(replay.getMoves(), replay.getMoves().length);
+        mKeyframeInterval = Math.max(MIN_KEYFRAME_INTERVAL, mBoard.getCellCount() / 4);
+
+        // The engine is only read, so nothing needs reporting.
+        mEngine = new GameEngine(mBoard, GameEngine.SILENT_LISTENER);
+
+        // Also checks that every move decodes, so later steps cannot fail on bad data.
+        do {
+            if(mPosition % mKeyframeInterval == 0) {
+                mKeyframes.add(new Keyframe(this));
+            }
+        } while(step());
+
+        seek(0);
+    }
+
+    /**
+     * Applies the next move.
+     *
+     * @return false if every move has already been applied
+     */
+    public boolean step() throws InvalidArgumentException, InitializationException {
+        if(mPosition == mReplay.getMoveCount()) {
+            return false;
+        }
+
+        mTime += mMoves.readVarint();
+        long move = mMoves.readVarint();
+        long index = move >>> Replay.GESTURE_BITS;
+
+        if(index >= mBoard.getCellCount()) {
+            throw new InvalidArgumentException("Move " + mPosition + " is off the board.");
+        }
+
+        int x = mBoard.getXGridCoordinate((int) index);
+        int y = mBoard.getYGridCoordinate((int) index);
+
+        switch((int) (move & Replay.GESTURE_MASK)) {
+            case Replay.CLICK:
+                mEngine.toggleFlagOrChord(x, y);
+                break;
+            case Replay.LONG_CLICK:
+                mEngine.uncoverOrChord(x, y);
+                break;
+            case Replay.FINISH:
+                mEngine.finish();
+                break;
+            default:
+                throw new InvalidArgumentException("Move " + mPosition + " has an unknown gesture.");
+        }
+        mPosition++;
+
+        return true;
+    }
+
+    /**
+     * Moves to the position after {@code position} moves.
+     */
+    public void seek(int position) throws InvalidArgumentException, InitializationException {
+        if(position < 0 || position > mReplay.getMoveCount()) {
+            throw new InvalidArgumentException("Position " + position + " is outside the replay.");
+        }
+
+        // Only restore if the keyframe is ahead of where playback already is, or behind the target.
+        Keyframe keyframe = mKeyframes.get(position / mKeyframeInterval);
+
+        if(position < mPosition || keyframe.mPosition > mPosition) {
+            keyframe.restore(this);
+        }
+
+        while(mPosition < position) {
+            step();
+        }
+    }
+
+    /**
+     * Moves to the position after the last move made at or before {@code time}.
+     */
+    public void seekToTime(long time) throws InvalidArgumentException, InitializationException {
+        // Last keyframe at or before the time.
+        int low = 0;
+        int high = mKeyframes.size() - 1;
+
+        while(low < high) {
+            int middle = (low + high + 1) >>> 1;
+
+            if(mKeyframes.get(middle).mTime <= time) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        mKeyframes.get(low).restore(this);
+
+        while(mPosition < mReplay.getMoveCount() && getNextMoveTime() <= time) {
+            step();
+        }
+    }
+
+    private long getNextMoveTime() throws InvalidArgumentException {
+        int offset = mMoves.getPosition();
+        long time = mTime + mMoves.readVarint();
+
+        mMoves.setPosition(offset);
+
+        return time;
+    }
+
+    /**
+     * The replayed game at the current position.  It must only be read, not played.
+     */
+    public GameEngine getEngine() {
+        return mEngine;
+    }
+
+    public Board getBoard() {
+        return mBoard;
+    }
+
+    public int getPosition() {
+        return mPosition;
+    }
+
+    /**
+     * Game time of the last move applied.
+     */
+    public long getTime() {
+        return mTime;
+    }
+
+    public int getMoveCount() {
+        return mReplay.getMoveCount();
+    }
+
+    static class Keyframe {
+        int mPosition;
+        int mOffset;
+        long mTime;
+        byte[] mStates;
+        long[] mCounters = new long[DeltaLog.COUNTER_COUNT];
+
+        Keyframe(ReplayPlayer player) {
+            mPosition = player.mPosition;
+            mOffset = player.mMoves.getPosition();
+            mTime = player.mTime;
+            mStates = new byte[player.mBoard.getCellCount()];
+            player.mEngine.saveState(mStates, mCounters);
+        }
+
+        void restore(ReplayPlayer player) {
+            player.mPosition = mPosition;
+            player.mMoves.setPosition(mOffset);
+            player.mTime = mTime;
+            player.mEngine.restoreState(mStates, mCounters);
+        }
+    }
+}
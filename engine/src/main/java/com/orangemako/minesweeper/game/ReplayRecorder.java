@@ -0,0 +1,82 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.Board;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+/**
+ * Records the moves a {@link GameEngine} keeps into a {@link Replay}.
+ *
+ * Undone moves leave the recording, so a replay follows the line of play that stands.  The
+ * engine records from whichever thread runs the game while the replay may be taken from
+ * another, so both sides synchronize on the recorder.
+ */
+public class ReplayRecorder {
+    private Board mBoard;
+
+    private VarintBuffer mMoves = new VarintBuffer();
+
+    // Start of each recorded move in the buffer, and its game time.
+    private int[] mMoveOffsets = new int[VarintBuffer.DEFAULT_CAPACITY];
+    private long[] mMoveTimes = new long[VarintBuffer.DEFAULT_CAPACITY];
+
+    // Moves in the recording, and every move still held for redo.
+    private int mMoveCount;
+    private int mRedoLimit;
+
+    /**
+     * @param board board of a game that has not had any move yet
+     */
+    public ReplayRecorder(Board board) throws InvalidArgumentException {
+        if(board == null || Replay.getTopologyId(board.getTopology()) < 0) {
+            throw new InvalidArgumentException("Board with a recordable topology required.");
+        }
+        mBoard = board;
+    }
+
+    synchronized void record(int gesture, int index, long time) {
+        if(mMoveCount + 1 == mMoveOffsets.length) {
+            int[] offsets = new int[mMoveOffsets.length * 2];
+            System.arraycopy(mMoveOffsets, 0, offsets, 0, mMoveOffsets.length);
+            mMoveOffsets = offsets;
+
+            long[] times = new long[mMoveTimes.length * 2];
+            System.arraycopy(mMoveTimes, 0, times, 0, mMoveTimes.length);
+            mMoveTimes = times;
+        }
+
+        int start = mMoveOffsets[mMoveCount];
+        long previousTime = mMoveCount > 0 ? mMoveTimes[mMoveCount - 1] : 0;
+
+        // Drop the moves that could have been redone.
+        mMoves.truncate(start);
+        mMoves.writeVarint(Math.max(0, time - previousTime));
+        mMoves.writeVarint((long) index << Replay.GESTURE_BITS | gesture);
+
+        mMoveTimes[mMoveCount] = Math.max(time, previousTime);
+        mMoveOffsets[++mMoveCount] = mMoves.size();
+        mRedoLimit = mMoveCount;
+    }
+
+    synchronized void undo() {
+        if(mMoveCount > 0) {
+            mMoveCount--;
+        }
+    }
+
+    synchronized void redo() {
+        if(mMoveCount < mRedoLimit) {
+            mMoveCount++;
+        }
+    }
+
+    /**
+     * The game as recorded so far.
+     */
+    public synchronized Replay getReplay() {
+        byte[] moves = new byte[mMoveOffsets[mMoveCount]];
+        System.arraycopy(mMoves.getBytes(), 0, moves, 0, moves.length);
+
+        return new Replay(mBoard.getWidth(), mBoard.getHeight(), mBoard.getNumMines(), mBoard.getTopology(),
+                mBoard.getSeed(), mBoard.isDeferred(), moves, mMoveCount);
+    }
+}
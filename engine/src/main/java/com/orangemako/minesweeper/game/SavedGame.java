@@ -0,0 +1,255 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.Board;
+import com.orangemako.minesweeper.board.Topology;
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+import java.util.Arrays;
+
+/**
+ * A game in progress, encoded compactly enough to survive process death in a saved instance
+ * state Bundle.
+ *
+ * Mines are not stored.  Generation is deterministic, so the seed and the square kept safe
+ * on the first move rebuild the same board.  Square states are stored as varint runs of one
+ * state, or at two bits per square when the board is too fragmented for runs to pay off.
+ * A saved game therefore never takes more than about a quarter byte per square.  Counters
+ * are recounted from the states on restore, except for the flags remaining, since a finished
+ * game uncovers its wrong flags.  Undo history is not saved.
+ */
+public class SavedGame {
+    static final int FORMAT_VERSION = 2;
+
+    // Header flags
+    static final int DEFERRED = 1;
+    static final int GENERATED = 1 << 1;
+    static final int GAME_FINISHED = 1 << 2;
+    static final int WON = 1 << 3;
+
+    // State encodings
+    static final int RUNS = 0;
+    static final int PACKED = 1;
+
+    private static final int STATE_BITS = 2;
+    private static final int STATE_MASK = 0x3;
+    private static final int STATES_PER_BYTE = 8 / STATE_BITS;
+
+    private int mWidth;
+    private int mHeight;
+    private int mNumMines;
+    private Topology mTopology;
+    private long mSeed;
+    private int mFlags;
+    private int mSafeIndex;
+    private long mElapsedTime;
+    private int mMineFlagsRemainingCount;
+    private byte[] mStates;
+
+    private SavedGame() {
+    }
+
+    /**
+     * Saves a game played on the calling thread.
+     */
+    public static byte[] encode(Board board, GameEngine engine) throws InvalidArgumentException {
+        GameSnapshot snapshot = new GameSnapshot(board.getCellCount());
+        snapshot.copyFrom(engine, 0);
+
+        return encode(board, snapshot);
+    }
+
+    /**
+     * Saves a game from a snapshot, as published by a {@link GameThread}.
+     */
+    public static byte[] encode(Board board, GameSnapshot snapshot) throws InvalidArgumentException {
+        int topologyId = Replay.getTopologyId(board.getTopology());
+
+        if(topologyId < 0) {
+            throw new InvalidArgumentException("Topology cannot be saved.");
+        }
+
+        int flags = (board.isDeferred() ? DEFERRED : 0)
+                | (snapshot.isBoardGenerated() ? GENERATED : 0)
+                | (snapshot.isGameFinished() ? GAME_FINISHED : 0)
+                | (snapshot.didWin() ? WON : 0);
+
+        VarintBuffer buffer = new VarintBuffer();
+
+        buffer.writeVarint(FORMAT_VERSION);
+        buffer.writeVarint(board.getWidth());
+        buffer.writeVarint(board.getHeight());
+        buffer.writeVarint(board.getNumMines());
+        buffer.writeVarint(topologyId);
+        buffer.writeVarint(flags);
+        buffer.writeLong(board.getSeed());
+        buffer.writeVarint(board.getSafeIndex() + 1);
+        buffer.writeVarint(snapshot.getElapsedTime());
+        buffer.writeVarint(snapshot.getMineFlagsRemainingCount());
+
+        writeStates(buffer, snapshot.getStates());
+
+        return buffer.toByteArray();
+    }
+
+    public static SavedGame decode(byte[] bytes) throws InvalidArgumentException {
+        VarintBuffer buffer = new VarintBuffer(bytes, bytes.length);
+        SavedGame savedGame = new SavedGame();
+
+        int version = buffer.readInt();
+
+        if(version != FORMAT_VERSION) {
+            throw new InvalidArgumentException("Unsupported saved game format " + version + ".");
+        }
+
+        savedGame.mWidth = buffer.readInt();
+        savedGame.mHeight = buffer.readInt();
+        savedGame.mNumMines = buffer.readInt();
+
+        int topologyId = buffer.readInt();
+
+        if(topologyId >= Replay.TOPOLOGIES.length) {
+            throw new InvalidArgumentException("Unknown topology " + topologyId + ".");
+        }
+        savedGame.mTopology = Replay.TOPOLOGIES[topologyId];
+        savedGame.mFlags = buffer.readInt();
+        savedGame.mSeed = buffer.readLong();
+        savedGame.mSafeIndex = buffer.readInt() - 1;
+        savedGame.mElapsedTime = buffer.readVarint();
+        savedGame.mMineFlagsRemainingCount = buffer.readInt();
+
+        long cellCount = (long) savedGame.mWidth * savedGame.mHeight;
+
+        if(cellCount > Board.MAX_CELL_COUNT || savedGame.mSafeIndex >= cellCount
+                || savedGame.mMineFlagsRemainingCount > savedGame.mNumMines) {
+            throw new InvalidArgumentException("Saved board dimensions are invalid.");
+        }
+        savedGame.mStates = readStates(buffer, (int) cellCount);
+
+        return savedGame;
+    }
+
+    /**
+     * Rebuilds the saved board, with its mines placed if they had been.
+     */
+    public Board createBoard() throws InvalidArgumentException, InitializationException {
+        Board board = new Board.Builder()
+                .width(mWidth)
+                .height(mHeight)
+                .numMines(mNumMines)
+                .topology(mTopology)
+                .seed(mSeed)
+                .deferred(isDeferred())
+                .build();
+
+        if(!board.isGenerated() && (mFlags & GENERATED) != 0) {
+            if(mSafeIndex >= 0) {
+                board.generate(mSafeIndex);
+            }
+            else {
+                board.generate();
+            }
+        }
+        return board;
+    }
+
+    private static void writeStates(VarintBuffer buffer, byte[] states) {
+        int packedSize = (states.length + STATES_PER_BYTE - 1) / STATES_PER_BYTE;
+        int mark = buffer.size();
+
+        buffer.writeVarint(RUNS);
+
+        int start = 0;
+
+        // Stop as soon as the runs outgrow the packed form.
+        while(start < states.length && buffer.size() - mark <= packedSize) {
+            int end = start + 1;
+
+            while(end < states.length && states[end] == states[start]) {
+                end++;
+            }
+            buffer.writeVarint((long) (end - start) << STATE_BITS | states[start]);
+            start = end;
+        }
+
+        if(start < states.length || buffer.size() - mark > packedSize + 1) {
+            buffer.truncate(mark);
+            buffer.writeVarint(PACKED);
+
+            byte[] packed = new byte[packedSize];
+
+            for(int index = 0; index < states.length; index++) {
+                packed[index / STATES_PER_BYTE] |= states[index] << (index % STATES_PER_BYTE * STATE_BITS);
+            }
+            buffer.writeBytes(packed, 0, packedSize);
+        }
+    }
+
+    private static byte[] readStates(VarintBuffer buffer, int cellCount) throws InvalidArgumentException {
+        byte[] states = new byte[cellCount];
+        int encoding = buffer.readInt();
+
+        if(encoding == RUNS) {
+            for(int start = 0; start < cellCount; ) {
+                long run = buffer.readVarint();
+                long length = run >>> STATE_BITS;
+                byte state = (byte) (run & STATE_MASK);
+
+                if(length == 0 || length > cellCount - start || state > GameEngine.UNCOVERED) {
+                    throw new InvalidArgumentException("Saved square states are corrupt.");
+                }
+
+                // Covered squares are already zero.
+                if(state != GameEngine.COVERED) {
+                    Arrays.fill(states, start, start + (int) length, state);
+                }
+                start += length;
+            }
+        }
+        else if(encoding == PACKED) {
+            byte[] packed = new byte[(cellCount + STATES_PER_BYTE - 1) / STATES_PER_BYTE];
+            buffer.readBytes(packed, 0, packed.length);
+
+            for(int index = 0; index < cellCount; index++) {
+                int state = packed[index / STATES_PER_BYTE] >>> (index % STATES_PER_BYTE * STATE_BITS) & STATE_MASK;
+
+                if(state > GameEngine.UNCOVERED) {
+                    throw new InvalidArgumentException("Saved square states are corrupt.");
+                }
+                states[index] = (byte) state;
+            }
+        }
+        else {
+            throw new InvalidArgumentException("Unknown square state encoding " + encoding + ".");
+        }
+        return states;
+    }
+
+    byte[] getStates() {
+        return mStates;
+    }
+
+    public boolean isDeferred() {
+        return (mFlags & DEFERRED) != 0;
+    }
+
+    public boolean isGameFinished() {
+        return (mFlags & GAME_FINISHED) != 0;
+    }
+
+    public boolean didWin() {
+        return (mFlags & WON) != 0;
+    }
+
+    public long getElapsedTime() {
+        return mElapsedTime;
+    }
+
+    public int getMineFlagsRemainingCount() {
+        return mMineFlagsRemainingCount;
+    }
+
+    public Topology getTopology() {
+        return mTopology;
+    }
+}
@@ -0,0 +1,117 @@
+package com.orangemako.minesweeper.game;
+
+/**
+ * What a {@link GameThread} publishes: the squares changed since the reader last took a
+ * publish, in the order they changed, and the game's counters.  A reader that fell far behind
+ * is sent every square's state instead.
+ */
+class SnapshotDelta {
+    // Each change is packed as square << 2 | state.
+    private static final int STATE_BITS = 2;
+    private static final int STATE_MASK = 0x3;
+
+    private SquareList mChanges = new SquareList();
+    private byte[] mStates;
+    private boolean mIsEveryState;
+    private long mVersion;
+
+    private boolean mIsBoardGenerated;
+    private boolean mIsGameFinished;
+    private boolean mDidWin;
+    private int mMineFlagsRemainingCount;
+
+    private long mElapsedTime;
+    private boolean mIsTimerRunning;
+    private long mPublishTime;
+
+    static long pack(long square, int state) {
+        return square << STATE_BITS | state;
+    }
+
+    /**
+     * Only called by the logic thread, while no reader can see this delta.
+     *
+     * @param changes packed changes to send, or null to send every square's state
+     */
+    void copyFrom(GameEngine engine, SquareList changes, long version) {
+        mChanges.clear();
+        mIsEveryState = changes == null;
+
+        if(mIsEveryState) {
+            if(mStates == null) {
+                mStates = new byte[(int) (engine.getBoard().getWidth() * (long) engine.getBoard().getHeight())];
+            }
+            engine.copyStates(mStates);
+        }
+        else {
+            for(int i = 0; i < changes.size(); i++) {
+                mChanges.add(changes.get(i));
+            }
+        }
+        mVersion = version;
+
+        mIsBoardGenerated = engine.getBoard().isGenerated();
+        mIsGameFinished = engine.isGameFinished();
+        mDidWin = engine.didWin();
+        mMineFlagsRemainingCount = engine.getMineFlagsRemainingCount();
+
+        mElapsedTime = engine.getElapsedTime();
+        mIsTimerRunning = engine.isTimerRunning();
+        mPublishTime = System.currentTimeMillis();
+    }
+
+    boolean isEveryState() {
+        return mIsEveryState;
+    }
+
+    /**
+     * Every square's state.  Only sent when {@link #isEveryState()}.
+     */
+    byte[] getStates() {
+        return mStates;
+    }
+
+    int getChangeCount() {
+        return mChanges.size();
+    }
+
+    int getChangedSquare(int i) {
+        return (int) (mChanges.get(i) >>> STATE_BITS);
+    }
+
+    int getChangedState(int i) {
+        return (int) (mChanges.get(i) & STATE_MASK);
+    }
+
+    long getVersion() {
+        return mVersion;
+    }
+
+    boolean isBoardGenerated() {
+        return mIsBoardGenerated;
+    }
+
+    boolean isGameFinished() {
+        return mIsGameFinished;
+    }
+
+    boolean didWin() {
+        return mDidWin;
+    }
+
+    int getMineFlagsRemainingCount() {
+        return mMineFlagsRemainingCount;
+    }
+
+    long getElapsedTime() {
+        return mElapsedTime;
+    }
+
+    boolean isTimerRunning() {
+        return mIsTimerRunning;
+    }
+
+    long getPublishTime() {
+        return mPublishTime;
+    }
+}
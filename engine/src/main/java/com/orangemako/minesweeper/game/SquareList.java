@@ -0,0 +1,41 @@
+package com.orangemako.minesweeper.game;
+
+/**
+ * Growable list of long square indices.  Reusing one instance keeps moves allocation-free
+ * once it has grown to fit the largest move.
+ */
+class SquareList {
+    static final int DEFAULT_CAPACITY = 64;
+
+    private long[] mSquares = new long[DEFAULT_CAPACITY];
+    private int mSize;
+
+    void add(long square) {
+        if(mSize == mSquares.length) {
+            long[] squares = new long[mSize * 2];
+            System.arraycopy(mSquares, 0, squares, 0, mSize);
+            mSquares = squares;
+        }
+        mSquares[mSize++] = square;
+    }
+
+    long get(int i) {
+        return mSquares[i];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Drops the first {@code count} squares, keeping the rest in order.
+     */
+    void removeFirst(int count) {
+        System.arraycopy(mSquares, count, mSquares, 0, mSize - count);
+        mSize -= count;
+    }
+}
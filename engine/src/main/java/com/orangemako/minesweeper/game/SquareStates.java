@@ -0,0 +1,151 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.LongHashSet;
+import com.orangemako.minesweeper.board.MineField;
+
+import java.util.Arrays;
+
+/**
+ * Player state of every square, keyed by long row-major index.
+ *
+ * Ordinary boards keep one byte per square.  Sparse boards keep only the flagged and the
+ * uncovered squares, each in a primitive hash set, so a board of any area costs memory in
+ * proportion to what the player has touched.
+ */
+abstract class SquareStates {
+    // Initial room for the sets of a sparse board; they grow as the player plays.
+    static final int DEFAULT_SPARSE_CAPACITY = 1024;
+
+    static SquareStates create(MineField board) {
+        if(board.isSparse()) {
+            return new SparseStates();
+        }
+        return new DenseStates(board.getWidth() * board.getHeight());
+    }
+
+    abstract int get(long index);
+
+    abstract void set(long index, int state);
+
+    /**
+     * Every flagged square, in no particular order.
+     */
+    abstract long[] getFlaggedSquares();
+
+    /**
+     * Copies every square's state into {@code states}, which must hold one byte per square.
+     */
+    abstract void copyTo(byte[] states);
+
+    /**
+     * Replaces every square's state with {@code states}, which holds one byte per square.
+     */
+    abstract void copyFrom(byte[] states);
+
+    private static class DenseStates extends SquareStates {
+        private byte[] mStates;
+
+        DenseStates(int cellCount) {
+            mStates = new byte[cellCount];
+        }
+
+        @Override
+        int get(long index) {
+            return mStates[(int) index];
+        }
+
+        @Override
+        void set(long index, int state) {
+            mStates[(int) index] = (byte) state;
+        }
+
+        @Override
+        long[] getFlaggedSquares() {
+            int count = 0;
+
+            for(byte state : mStates) {
+                if(state == GameEngine.FLAGGED_AS_MINE) {
+                    count++;
+                }
+            }
+
+            long[] flaggedSquares = new long[count];
+            count = 0;
+
+            for(int index = 0; index < mStates.length; index++) {
+                if(mStates[index] == GameEngine.FLAGGED_AS_MINE) {
+                    flaggedSquares[count++] = index;
+                }
+            }
+            return flaggedSquares;
+        }
+
+        @Override
+        void copyTo(byte[] states) {
+            System.arraycopy(mStates, 0, states, 0, mStates.length);
+        }
+
+        @Override
+        void copyFrom(byte[] states) {
+            System.arraycopy(states, 0, mStates, 0, mStates.length);
+        }
+    }
+
+    private static class SparseStates extends SquareStates {
+        private LongHashSet mFlaggedSquares = new LongHashSet(DEFAULT_SPARSE_CAPACITY);
+        private LongHashSet mUncoveredSquares = new LongHashSet(DEFAULT_SPARSE_CAPACITY);
+
+        @Override
+        int get(long index) {
+            if(mUncoveredSquares.contains(index)) {
+                return GameEngine.UNCOVERED;
+            }
+            return mFlaggedSquares.contains(index) ? GameEngine.FLAGGED_AS_MINE : GameEngine.COVERED;
+        }
+
+        @Override
+        void set(long index, int state) {
+            mFlaggedSquares.remove(index);
+            mUncoveredSquares.remove(index);
+
+            if(state == GameEngine.FLAGGED_AS_MINE) {
+                mFlaggedSquares.add(index);
+            }
+            else if(state == GameEngine.UNCOVERED) {
+                mUncoveredSquares.add(index);
+            }
+        }
+
+        @Override
+        long[] getFlaggedSquares() {
+            return mFlaggedSquares.toArray();
+        }
+
+        /**
+         * Only possible for sparse boards small enough to hold a byte per square.
+         */
+        @Override
+        void copyTo(byte[] states) {
+            Arrays.fill(states, (byte) GameEngine.COVERED);
+
+            for(long index : mFlaggedSquares.toArray()) {
+                states[(int) index] = GameEngine.FLAGGED_AS_MINE;
+            }
+            for(long index : mUncoveredSquares.toArray()) {
+                states[(int) index] = GameEngine.UNCOVERED;
+            }
+        }
+
+        @Override
+        void copyFrom(byte[] states) {
+            mFlaggedSquares.clear();
+            mUncoveredSquares.clear();
+
+            for(int index = 0; index < states.length; index++) {
+                if(states[index] != GameEngine.COVERED) {
+                    set(index, states[index]);
+                }
+            }
+        }
+    }
+}
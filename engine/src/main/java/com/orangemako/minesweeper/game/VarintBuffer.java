@@ -0,0 +1,143 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+/**
+ * Growable byte array written and read as unsigned LEB128 varints: seven bits per byte, low
+ * bits first, with the high bit set on every byte but the last.  Small values, such as
+ * time deltas and square indices on ordinary boards, take one to three bytes.
+ */
+class VarintBuffer {
+    static final int DEFAULT_CAPACITY = 64;
+
+    private byte[] mBytes;
+    private int mSize;
+    private int mPosition;
+
+    VarintBuffer() {
+        mBytes = new byte[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Reads from the first {@code size} bytes of {@code bytes}, without copying them.
+     */
+    VarintBuffer(byte[] bytes, int size) {
+        mBytes = bytes;
+        mSize = size;
+    }
+
+    void writeVarint(long value) {
+        ensureCapacity(10);
+
+        while((value & ~0x7FL) != 0) {
+            mBytes[mSize++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        mBytes[mSize++] = (byte) value;
+    }
+
+    void writeLong(long value) {
+        ensureCapacity(8);
+
+        for(int shift = 56; shift >= 0; shift -= 8) {
+            mBytes[mSize++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, mBytes, mSize, length);
+        mSize += length;
+    }
+
+    long readVarint() throws InvalidArgumentException {
+        long value = 0;
+
+        for(int shift = 0; shift < 64; shift += 7) {
+            if(mPosition >= mSize) {
+                throw new InvalidArgumentException("Varint runs past the end of the data.");
+            }
+            byte b = mBytes[mPosition++];
+            value |= (long) (b & 0x7F) << shift;
+
+            if(b >= 0) {
+                return value;
+            }
+        }
+        throw new InvalidArgumentException("Varint is longer than 64 bits.");
+    }
+
+    /**
+     * Reads a varint that must fit in a non-negative int.
+     */
+    int readInt() throws InvalidArgumentException {
+        long value = readVarint();
+
+        if(value < 0 || value > Integer.MAX_VALUE) {
+            throw new InvalidArgumentException("Value " + value + " is out of range.");
+        }
+        return (int) value;
+    }
+
+    long readLong() throws InvalidArgumentException {
+        if(mSize - mPosition < 8) {
+            throw new InvalidArgumentException("Long runs past the end of the data.");
+        }
+        long value = 0;
+
+        for(int i = 0; i < 8; i++) {
+            value = value << 8 | (mBytes[mPosition++] & 0xFF);
+        }
+        return value;
+    }
+
+    void readBytes(byte[] bytes, int offset, int length) throws InvalidArgumentException {
+        if(mSize - mPosition < length) {
+            throw new InvalidArgumentException("Data ends before " + length + " bytes could be read.");
+        }
+        System.arraycopy(mBytes, mPosition, bytes, offset, length);
+        mPosition += length;
+    }
+
+    boolean hasRemaining() {
+        return mPosition < mSize;
+    }
+
+    int getPosition() {
+        return mPosition;
+    }
+
+    void setPosition(int position) {
+        mPosition = position;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Drops every byte from {@code size} on.
+     */
+    void truncate(int size) {
+        mSize = size;
+    }
+
+    byte[] getBytes() {
+        return mBytes;
+    }
+
+    byte[] toByteArray() {
+        byte[] bytes = new byte[mSize];
+        System.arraycopy(mBytes, 0, bytes, 0, mSize);
+
+        return bytes;
+    }
+
+    private void ensureCapacity(int extra) {
+        if(mSize + extra > mBytes.length) {
+            byte[] bytes = new byte[Math.max(mBytes.length * 2, mSize + extra)];
+            System.arraycopy(mBytes, 0, bytes, 0, mSize);
+            mBytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.orangemako.minesweeper.random;
+
+import java.util.Random;
+
+/**
+ * Adapts {@link java.util.Random} to {@link RandomSource}.  Slower than the other
+ * generators because {@code Random} synchronizes on every draw.
+ */
+public class JavaRandomSource extends RandomSource {
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public RandomSource create(long seed) {
+            return new JavaRandomSource(new Random(seed));
+        }
+    };
+
+    private Random mRandom;
+
+    public JavaRandomSource(Random random) {
+        mRandom = random;
+    }
+
+    @Override
+    public long nextLong() {
+        return mRandom.nextLong();
+    }
+}
@@ -0,0 +1,69 @@
+package com.orangemako.minesweeper.random;
+
+/**
+ * Minimal pseudo-random generator used for board generation.  Implementations only
+ * need to supply 64 random bits at a time; bounded draws are derived here so every
+ * generator produces identical sequences for identical bit streams.
+ */
+public abstract class RandomSource {
+    public abstract long nextLong();
+
+    /**
+     * Returns an unbiased value in [0, bound) using Lemire's multiply-shift method,
+     * which avoids a division on all but a vanishing fraction of draws.
+     */
+    public int nextInt(int bound) {
+        if(bound <= 0) {
+            throw new IllegalArgumentException("Bound must be greater than 0.");
+        }
+
+        long random = nextLong() >>> 32;
+        long product = random * bound;
+        long low = product & 0xFFFFFFFFL;
+
+        if(low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+
+            while(low < threshold) {
+                random = nextLong() >>> 32;
+                product = random * bound;
+                low = product & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    /**
+     * Returns an unbiased value in [0, bound), for ranges too large for {@link #nextInt(int)}.
+     */
+    public long nextLong(long bound) {
+        if(bound <= 0) {
+            throw new IllegalArgumentException("Bound must be greater than 0.");
+        }
+
+        long mask = bound - 1;
+        long random = nextLong() >>> 1;
+
+        if((bound & mask) == 0) {
+            // Power of two
+            return random & mask;
+        }
+
+        // Reject the incomplete range at the top of the 63 bit space.
+        long result = random % bound;
+
+        while(random - result + mask < 0) {
+            random = nextLong() >>> 1;
+            result = random % bound;
+        }
+        return result;
+    }
+
+    /**
+     * Creates generators from a seed so that boards can be reproduced from
+     * the seed alone.
+     */
+    public interface Factory {
+        RandomSource create(long seed);
+    }
+}
@@ -0,0 +1,39 @@
+package com.orangemako.minesweeper.random;
+
+/**
+ * SplitMix64 generator.  Produces the same stream as {@code java.util.SplittableRandom}
+ * for a given seed, and is available on all supported API levels.
+ */
+public class SplitMix64Source extends RandomSource {
+    public static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public RandomSource create(long seed) {
+            return new SplitMix64Source(seed);
+        }
+    };
+
+    private long mState;
+
+    public SplitMix64Source(long seed) {
+        mState = seed;
+    }
+
+    @Override
+    public long nextLong() {
+        mState += GOLDEN_GAMMA;
+
+        return mix64(mState);
+    }
+
+    /**
+     * Stafford variant 13 finalizer.  Also useful on its own for hashing seeds.
+     */
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+}
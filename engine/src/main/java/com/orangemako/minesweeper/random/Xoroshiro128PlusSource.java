@@ -0,0 +1,37 @@
+package com.orangemako.minesweeper.random;
+
+/**
+ * xoroshiro128+ generator.  The 128 bit state is expanded from the seed with
+ * SplitMix64 as recommended by the algorithm's authors.
+ */
+public class Xoroshiro128PlusSource extends RandomSource {
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public RandomSource create(long seed) {
+            return new Xoroshiro128PlusSource(seed);
+        }
+    };
+
+    private long mState0;
+    private long mState1;
+
+    public Xoroshiro128PlusSource(long seed) {
+        SplitMix64Source seeder = new SplitMix64Source(seed);
+
+        mState0 = seeder.nextLong();
+        mState1 = seeder.nextLong();
+    }
+
+    @Override
+    public long nextLong() {
+        long s0 = mState0;
+        long s1 = mState1;
+        long result = s0 + s1;
+
+        s1 ^= s0;
+        mState0 = Long.rotateLeft(s0, 24) ^ s1 ^ (s1 << 16);
+        mState1 = Long.rotateLeft(s1, 37);
+
+        return result;
+    }
+}
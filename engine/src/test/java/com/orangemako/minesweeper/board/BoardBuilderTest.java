@@ -0,0 +1,278 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+import com.orangemako.minesweeper.random.Xoroshiro128PlusSource;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class BoardBuilderTest {
+    Board.Builder builder;
+    Board board;
+
+    int expectedWidth;
+    int expectedHeight;
+    int expectedNumMines;
+
+    @Before
+    public void setUp() throws Exception {
+        builder = new Board.Builder();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void testDimensionWithInvalidArgs() throws Exception {
+        builder.dimension(0);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void testWidthWithInvalidArgs() throws Exception {
+        builder.width(0);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void testHeightWithInvalidArgs() throws Exception {
+        builder.height(-1);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void testNumMinesWithInvalidArgs() throws Exception {
+        builder.numMines(0);
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void testNumMinesFillingBoard() throws Exception {
+        builder.width(3).height(2).numMines(6).build();
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void testCellCountOverflow() throws Exception {
+        builder.width(65536).height(65536).build();
+    }
+
+    @Test
+    public void testBoardDimensions() throws Exception {
+        setupBoard();
+
+        Assert.assertEquals(expectedWidth, board.getWidth());
+        Assert.assertEquals(expectedHeight, board.getHeight());
+        Assert.assertEquals(expectedWidth * expectedHeight, board.getBoardGrid().length);
+    }
+
+    @Test
+    public void testBoardMines() throws Exception {
+        setupBoard();
+        int collectedMines = 0;
+
+        // Collect mines placed on grid.
+        for(int i = 0; i < board.getCellCount(); i++) {
+            if (board.isMine(i)) {
+                collectedMines++;
+            }
+        }
+
+        Assert.assertEquals(expectedNumMines, collectedMines);
+    }
+
+    @Test
+    public void testSeedReproducesBoard() throws Exception {
+        Board first = new Board.Builder().width(30).height(16).numMines(99).seed(42L).build();
+        Board second = new Board.Builder().width(30).height(16).numMines(99).seed(42L).build();
+
+        Assert.assertEquals(42L, first.getSeed());
+        Assert.assertArrayEquals(first.getBoardGrid(), second.getBoardGrid());
+    }
+
+    @Test
+    public void testMaximumDensity() throws Exception {
+        board = builder.width(50).height(40).numMines(1999).randomSourceFactory(Xoroshiro128PlusSource.FACTORY).build();
+        int collectedMines = 0;
+
+        for(int i = 0; i < board.getCellCount(); i++) {
+            if (board.isMine(i)) {
+                collectedMines++;
+            }
+        }
+
+        Assert.assertEquals(1999, collectedMines);
+    }
+
+    @Test
+    public void testParallelGenerationIsDeterministic() throws Exception {
+        Board inline = new Board.Builder().width(512).height(1200).numMines(20000).seed(7L).build();
+
+        for(int threads = 1; threads <= 4; threads++) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+            try {
+                Board parallel = new Board.Builder().width(512).height(1200).numMines(20000).seed(7L)
+                        .executor(executor).build();
+
+                Assert.assertArrayEquals(inline.getBoardGrid(), parallel.getBoardGrid());
+            }
+            finally {
+                executor.shutdown();
+            }
+        }
+
+        int collectedMines = 0;
+
+        for(int i = 0; i < inline.getCellCount(); i++) {
+            if (inline.isMine(i)) {
+                collectedMines++;
+            }
+        }
+
+        Assert.assertEquals(20000, collectedMines);
+    }
+
+    @Test
+    public void testDeferredBoardKeepsFirstSquareSafe() throws Exception {
+        expectedWidth = 9;
+        expectedHeight = 9;
+        board = builder.dimension(9).numMines(72).deferred(true).build();
+
+        Assert.assertFalse(board.isGenerated());
+        Assert.assertNull(board.getBoardGrid());
+
+        board.generate(board.getIndex(4, 4));
+
+        Assert.assertTrue(board.isGenerated());
+        Assert.assertEquals(0, board.adjacentCount(board.getIndex(4, 4)));
+
+        for(int i = 0; i < board.getCellCount(); i++) {
+            boolean isSafeZone = Math.abs(board.getXGridCoordinate(i) - 4) <= 1
+                    && Math.abs(board.getYGridCoordinate(i) - 4) <= 1;
+
+            Assert.assertEquals(!isSafeZone, board.isMine(i));
+        }
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void testDeferredBoardWithoutRoomForSafeZone() throws Exception {
+        builder.dimension(9).numMines(73).deferred(true).build();
+    }
+
+    @Test
+    public void testEmptySquares() throws Exception {
+        setupBoard();
+
+        for(int i = 0; i < expectedHeight; i++) {
+            for(int j = 0; j < expectedWidth; j++) {
+                int index = board.getIndex(j, i);
+
+                // Check all empty squares to ensure no adjacent mines exist.
+                if(!board.isMine(index) && board.adjacentCount(index) == 0) {
+                    Assert.assertEquals(0, countAdjacentMines(j, i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCalculatedSquares() throws Exception {
+        setupBoard();
+
+        // Check all calculated squares for correctness
+        for(int i = 0; i < expectedHeight; i++) {
+            for(int j = 0; j < expectedWidth; j++) {
+                int index = board.getIndex(j, i);
+
+                if(!board.isMine(index)) {
+                    Assert.assertEquals(board.adjacentCount(index), countAdjacentMines(j, i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTopologiesCountTheirNeighbors() throws Exception {
+        Topology[] topologies = {Topology.SQUARE, Topology.TORUS, Topology.HEX};
+
+        for(Topology topology : topologies) {
+            board = new Board.Builder().width(13).height(11).numMines(40).seed(3L).topology(topology).build();
+
+            NeighborTable neighborTable = board.getNeighborTable();
+            int[] neighbors = neighborTable.getNeighbors();
+
+            for(int index = 0; index < board.getCellCount(); index++) {
+                int mineCount = 0;
+
+                for(int k = neighborTable.getStart(index); k < neighborTable.getEnd(index); k++) {
+                    Assert.assertTrue(neighbors[k] != index);
+
+                    if(board.isMine(neighbors[k])) {
+                        mineCount++;
+                    }
+                }
+                if(!board.isMine(index)) {
+                    Assert.assertEquals(mineCount, board.adjacentCount(index));
+                }
+            }
+        }
+
+        // Every square of a torus has eight neighbors, corners included.
+        NeighborTable torus = Topology.TORUS.createNeighborTable(13, 11);
+        Assert.assertEquals(8, torus.getEnd(0) - torus.getStart(0));
+
+        // Hex squares have six neighbors away from the edges.
+        NeighborTable hex = Topology.HEX.createNeighborTable(13, 11);
+        int center = 5 * 13 + 6;
+        Assert.assertEquals(6, hex.getEnd(center) - hex.getStart(center));
+    }
+
+    @Test
+    public void testMetricsMatchOpeningsAndClicks() throws Exception {
+        board = builder.width(30).height(16).numMines(99).seed(11L).build();
+
+        BoardMetrics metrics = board.calculateMetrics();
+        ZeroRegionIndex zeroRegionIndex = board.getZeroRegionIndex();
+
+        Assert.assertEquals(zeroRegionIndex.getRegionCount(), metrics.getOpeningCount());
+
+        // Clicking each opening once and then every square still covered solves the board.
+        boolean[] uncovered = new boolean[board.getCellCount()];
+        int clickCount = 0;
+
+        for(int region = 0; region < zeroRegionIndex.getRegionCount(); region++) {
+            for(int k = zeroRegionIndex.getRegionStart(region); k < zeroRegionIndex.getRegionEnd(region); k++) {
+                uncovered[zeroRegionIndex.getRegionCells()[k]] = true;
+            }
+            clickCount++;
+        }
+        for(int index = 0; index < uncovered.length; index++) {
+            if(!uncovered[index] && !board.isMine(index)) {
+                clickCount++;
+            }
+        }
+        Assert.assertEquals(clickCount, metrics.get3BV());
+        Assert.assertEquals(clickCount, metrics.getMinimumClickCount());
+    }
+
+    int countAdjacentMines(int x, int y) {
+        int actualAdjacentMines = 0;
+
+        int startingY = Math.max(0, y - 1);
+        int startingX = Math.max(0, x - 1);
+
+        for(int k = startingY; k <= y + 1 && k < expectedHeight; k++) {
+            for(int m = startingX; m <= x + 1 && m < expectedWidth; m++) {
+                if(board.isMine(board.getIndex(m, k))) {
+                    actualAdjacentMines++;
+                }
+            }
+        }
+        return actualAdjacentMines;
+    }
+
+    void setupBoard() throws Exception {
+        expectedWidth = 6;
+        expectedHeight = 4;
+        expectedNumMines = 5;
+
+        board = builder.width(expectedWidth).height(expectedHeight).numMines(expectedNumMines).build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.orangemako.minesweeper.board;
+
+import com.orangemako.minesweeper.exceptions.InitializationException;
+import com.orangemako.minesweeper.exceptions.InvalidArgumentException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EndlessBoardTest {
+    static final int START = EndlessBoard.EXTENT / 2;
+
+    // Spans several chunks in each direction, starting off a chunk boundary.
+    static final int AREA = 3 * EndlessBoard.CHUNK_SIZE + 7;
+
+    @Test
+    public void testSquaresSurviveChunkEviction() throws Exception {
+        EndlessBoard cached = buildBoard(7, EndlessBoard.DEFAULT_MAX_CACHED_CHUNKS);
+        EndlessBoard evicting = buildBoard(7, 1);
+
+        // Each pass over the area evicts every chunk of the one-chunk cache many times over.
+        for(int pass = 0; pass < 2; pass++) {
+            for(int y = START - 5; y < START - 5 + AREA; y++) {
+                for(int x = START - 5; x < START - 5 + AREA; x++) {
+                    Assert.assertEquals(cached.isMine(x, y), evicting.isMine(x, y));
+                    Assert.assertEquals(cached.adjacentCount(x, y), evicting.adjacentCount(x, y));
+                }
+            }
+        }
+
+        Assert.assertEquals(1, evicting.getCachedChunkCount());
+    }
+
+    @Test
+    public void testAdjacentCountsMatchMines() throws Exception {
+        EndlessBoard board = buildBoard(3, 1);
+        long[] neighbors = new long[Topology.SQUARE.getMaxNeighborCount()];
+
+        for(int y = START; y < START + AREA; y++) {
+            for(int x = START; x < START + AREA; x++) {
+                if(board.isMine(x, y)) {
+                    Assert.assertEquals(0, board.adjacentCount(x, y));
+                    continue;
+                }
+
+                int count = 0;
+                int neighborCount = board.getNeighbors(x, y, neighbors);
+
+                for(int k = 0; k < neighborCount; k++) {
+                    if(board.isMine((int) (neighbors[k] % EndlessBoard.EXTENT),
+                            (int) (neighbors[k] / EndlessBoard.EXTENT))) {
+                        count++;
+                    }
+                }
+                Assert.assertEquals(count, board.adjacentCount(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testCornerCountsOnlySquaresOnTheBoard() throws Exception {
+        EndlessBoard board = buildBoard(5, 4);
+
+        Assert.assertFalse(board.isMine(-1, 0));
+        Assert.assertFalse(board.isMine(0, EndlessBoard.EXTENT));
+        Assert.assertTrue(board.adjacentCount(0, 0) <= 3);
+    }
+
+    @Test
+    public void testFirstClickSafeZone() throws Exception {
+        for(long seed = 0; seed < 20; seed++) {
+            EndlessBoard board = new EndlessBoard.Builder()
+                    .seed(seed)
+                    .mineDensity(0.5f)
+                    .build();
+
+            // Counts read before generation must not survive it.
+            board.adjacentCount(START, START);
+            board.generate(START, START);
+
+            for(int y = START - 1; y <= START + 1; y++) {
+                for(int x = START - 1; x <= START + 1; x++) {
+                    Assert.assertFalse(board.isMine(x, y));
+                }
+            }
+            Assert.assertEquals(0, board.adjacentCount(START, START));
+        }
+    }
+
+    @Test
+    public void testSafeZoneLeavesTheRestOfTheBoard() throws Exception {
+        EndlessBoard board = buildBoard(9, 4);
+        EndlessBoard untouched = buildBoard(9, 4);
+
+        board.generate(START, START);
+        untouched.generate();
+
+        for(int y = START - 40; y < START + 40; y++) {
+            for(int x = START - 40; x < START + 40; x++) {
+                if(Math.abs(x - START) > 1 || Math.abs(y - START) > 1) {
+                    Assert.assertEquals(untouched.isMine(x, y), board.isMine(x, y));
+                }
+            }
+        }
+    }
+
+    @Test(expected = InitializationException.class)
+    public void testMinesArePlacedOnce() throws Exception {
+        EndlessBoard board = buildBoard(1, 4);
+
+        board.generate(START, START);
+        board.generate();
+    }
+
+    @Test
+    public void testOpeningsAtMinimumDensityEnd() throws Exception {
+        for(long seed = 0; seed < 20; seed++) {
+            EndlessBoard board = new EndlessBoard.Builder()
+                    .seed(seed)
+                    .mineDensity(EndlessBoard.MIN_MINE_DENSITY)
+                    .build();
+            board.generate(START, START);
+
+            int count = new RevealEngine(board).reveal(START, START);
+
+            Assert.assertTrue("Seed " + seed, count < RevealEngine.MAX_SPARSE_REVEAL_COUNT);
+        }
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void testDensityBelowPercolationIsRejected() throws Exception {
+        new EndlessBoard.Builder().mineDensity(EndlessBoard.MIN_MINE_DENSITY / 2);
+    }
+
+    private static EndlessBoard buildBoard(long seed, int maxCachedChunks) throws Exception {
+        return new EndlessBoard.Builder()
+                .seed(seed)
+                .maxCachedChunks(maxCachedChunks)
+                .build();
+    }
+}
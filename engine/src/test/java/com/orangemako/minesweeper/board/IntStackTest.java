@@ -0,0 +1,54 @@
+package com.orangemako.minesweeper.board;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntStackTest {
+    @Test
+    public void testPopsInReverseOrder() throws Exception {
+        IntStack stack = new IntStack();
+
+        stack.push(1);
+        stack.push(2);
+        stack.push(3);
+
+        Assert.assertEquals(3, stack.size());
+        Assert.assertEquals(3, stack.pop());
+        Assert.assertEquals(2, stack.pop());
+        Assert.assertEquals(1, stack.pop());
+        Assert.assertTrue(stack.isEmpty());
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() throws Exception {
+        // A zero capacity is rounded up, so the first push already has to fit.
+        IntStack stack = new IntStack(0);
+
+        for(int i = 0; i < 1000; i++) {
+            stack.push(i);
+        }
+
+        Assert.assertEquals(1000, stack.size());
+
+        for(int i = 999; i >= 0; i--) {
+            Assert.assertEquals(i, stack.pop());
+        }
+        Assert.assertTrue(stack.isEmpty());
+    }
+
+    @Test
+    public void testClearEmptiesForReuse() throws Exception {
+        IntStack stack = new IntStack(2);
+
+        stack.push(5);
+        stack.push(6);
+        stack.clear();
+
+        Assert.assertTrue(stack.isEmpty());
+
+        stack.push(7);
+
+        Assert.assertEquals(1, stack.size());
+        Assert.assertEquals(7, stack.pop());
+    }
+}
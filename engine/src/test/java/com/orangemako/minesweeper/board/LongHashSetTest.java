@@ -0,0 +1,160 @@
+package com.orangemako.minesweeper.board;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class LongHashSetTest {
+    LongHashSet set;
+
+    @Before
+    public void setUp() throws Exception {
+        set = new LongHashSet(4);
+    }
+
+    @Test
+    public void testAddAndContains() throws Exception {
+        Assert.assertTrue(set.add(42));
+        Assert.assertFalse(set.add(42));
+
+        Assert.assertTrue(set.contains(42));
+        Assert.assertFalse(set.contains(43));
+        Assert.assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testEmptyMarkerIsAKey() throws Exception {
+        Assert.assertFalse(set.contains(LongHashSet.EMPTY));
+        Assert.assertTrue(set.add(LongHashSet.EMPTY));
+        Assert.assertFalse(set.add(LongHashSet.EMPTY));
+
+        Assert.assertTrue(set.contains(LongHashSet.EMPTY));
+        Assert.assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testGrowthKeepsEveryKey() throws Exception {
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+
+        // Sequential keys probe into each other; large random ones spread across the table.
+        for(long key = 0; key < 5000; key++) {
+            set.add(key);
+            expected.add(key);
+        }
+        for(int i = 0; i < 5000; i++) {
+            long key = random.nextLong();
+            set.add(key);
+            expected.add(key);
+        }
+
+        Assert.assertEquals(expected.size(), set.size());
+
+        for(long key : expected) {
+            Assert.assertTrue(set.contains(key));
+        }
+        Assert.assertFalse(set.contains(-1));
+    }
+
+    @Test
+    public void testRemoveKeepsOtherKeysReachable() throws Exception {
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(11);
+
+        // Dense sequential keys make long probe runs, so every removal has keys to shift back.
+        for(long key = 0; key < 4000; key++) {
+            set.add(key);
+            expected.add(key);
+        }
+        for(int i = 0; i < 3000; i++) {
+            long key = random.nextInt(4000);
+
+            Assert.assertEquals(expected.remove(key), set.remove(key));
+        }
+
+        Assert.assertEquals(expected.size(), set.size());
+
+        for(long key = 0; key < 4000; key++) {
+            Assert.assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+
+    @Test
+    public void testRemovedKeysCanBeAddedAgainAcrossGrowth() throws Exception {
+        for(long key = 0; key < 100; key++) {
+            set.add(key);
+        }
+        for(long key = 0; key < 100; key += 2) {
+            Assert.assertTrue(set.remove(key));
+            Assert.assertFalse(set.remove(key));
+        }
+
+        // Growing past the removals rehashes only the keys still held.
+        for(long key = 0; key < 1000; key += 2) {
+            Assert.assertTrue(set.add(key));
+        }
+
+        Assert.assertEquals(550, set.size());
+        Assert.assertTrue(set.contains(0));
+        Assert.assertTrue(set.contains(99));
+        Assert.assertFalse(set.contains(101));
+    }
+
+    @Test
+    public void testRemoveEmptyMarkerAndCopyKeys() throws Exception {
+        set.add(3);
+        set.add(LongHashSet.EMPTY);
+        set.add(-7);
+
+        long[] keys = set.toArray();
+        Arrays.sort(keys);
+
+        Assert.assertArrayEquals(new long[]{LongHashSet.EMPTY, -7, 3}, keys);
+
+        Assert.assertTrue(set.remove(LongHashSet.EMPTY));
+        Assert.assertFalse(set.contains(LongHashSet.EMPTY));
+        Assert.assertEquals(2, set.toArray().length);
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        set.add(1);
+        set.add(LongHashSet.EMPTY);
+        set.clear();
+
+        Assert.assertEquals(0, set.size());
+        Assert.assertFalse(set.contains(1));
+        Assert.assertFalse(set.contains(LongHashSet.EMPTY));
+    }
+
+    @Test
+    public void testFullSetRejectsNewKeys() throws Exception {
+        LongHashSet capped = new LongHashSet(1, 8);
+
+        for(long key = 0; key < 8 * LongHashSet.LOAD_FACTOR; key++) {
+            capped.add(key);
+        }
+
+        // Keys already held are still found, and the set is unchanged by the failed add.
+        Assert.assertFalse(capped.add(0));
+
+        try {
+            capped.add(100);
+            Assert.fail("A full set must not grow past its maximum capacity.");
+        }
+        catch (IllegalStateException e) {
+            Assert.assertEquals(4, capped.size());
+            Assert.assertFalse(capped.contains(100));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExpectedSizeBeyondMaximum() throws Exception {
+        new LongHashSet(LongHashSet.MAX_SIZE + 1);
+    }
+}
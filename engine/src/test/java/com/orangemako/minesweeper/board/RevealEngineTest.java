@@ -0,0 +1,239 @@
+package com.orangemako.minesweeper.board;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+public class RevealEngineTest {
+    static final int WIDTH = 23;
+    static final int HEIGHT = 17;
+    static final int NUM_MINES = 40;
+    static final int SEED_COUNT = 10;
+
+    @Test
+    public void testScanlineFillMatchesSearch() throws Exception {
+        assertRevealsMatchSearch(Topology.SQUARE, false);
+    }
+
+    @Test
+    public void testZeroRegionIndexMatchesSearch() throws Exception {
+        assertRevealsMatchSearch(Topology.SQUARE, true);
+    }
+
+    @Test
+    public void testTorusRevealMatchesSearch() throws Exception {
+        assertRevealsMatchSearch(Topology.TORUS, false);
+    }
+
+    @Test
+    public void testHexRevealMatchesSearch() throws Exception {
+        assertRevealsMatchSearch(Topology.HEX, false);
+    }
+
+    @Test
+    public void testNumberedSquareRevealsNothing() throws Exception {
+        Board board = buildBoard(Topology.SQUARE, false, 1);
+        RevealEngine revealEngine = new RevealEngine(board);
+
+        for(int index = 0; index < board.getCellCount(); index++) {
+            if(board.isMine(index) || board.adjacentCount(index) > 0) {
+                Assert.assertEquals(0, revealEngine.reveal(board.getXGridCoordinate(index),
+                        board.getYGridCoordinate(index)));
+            }
+        }
+    }
+
+    @Test
+    public void testSparseRevealMatchesSearch() throws Exception {
+        for(long seed = 0; seed < SEED_COUNT; seed++) {
+            SparseBoard board = new SparseBoard.Builder()
+                    .width(WIDTH)
+                    .height(HEIGHT)
+                    .numMines(NUM_MINES)
+                    .seed(seed)
+                    .build();
+            RevealEngine revealEngine = new RevealEngine(board);
+
+            for(int index = 0; index < WIDTH * HEIGHT; index++) {
+                if(!isBlank(board, index % WIDTH, index / WIDTH)) {
+                    continue;
+                }
+
+                int count = revealEngine.reveal(index % WIDTH, index / WIDTH);
+                long[] revealedSquares = revealEngine.getRevealedSquares();
+                int[] revealed = new int[count];
+
+                for(int k = 0; k < count; k++) {
+                    revealed[k] = (int) revealedSquares[k];
+                }
+                Arrays.sort(revealed);
+
+                Assert.assertArrayEquals("Seed " + seed + ", square " + index,
+                        search(board, Topology.SQUARE, index), revealed);
+            }
+        }
+    }
+
+    @Test
+    public void testHugeSparseRevealStopsNearestFirst() throws Exception {
+        SparseBoard board = new SparseBoard.Builder()
+                .width(100000)
+                .height(100000)
+                .numMines(10)
+                .seed(3)
+                .build();
+        RevealEngine revealEngine = new RevealEngine(board);
+
+        int count = revealEngine.reveal(50000, 50000);
+        long[] revealedSquares = revealEngine.getRevealedSquares();
+
+        Assert.assertEquals(RevealEngine.MAX_SPARSE_REVEAL_COUNT, count);
+        Assert.assertEquals(board.getIndex(50000, 50000), revealedSquares[0]);
+
+        // A square of the limit's area, grown one ring at a time around the click.
+        int radius = (int) Math.ceil(Math.sqrt(count) / 2) + 1;
+
+        for(int k = 0; k < count; k++) {
+            Assert.assertTrue(Math.abs(revealedSquares[k] % 100000 - 50000) <= radius);
+            Assert.assertTrue(Math.abs(revealedSquares[k] / 100000 - 50000) <= radius);
+        }
+    }
+
+    /**
+     * Reveals every blank square of several seeded boards and compares each reveal against a
+     * breadth-first search over neighbors worked out from coordinates.
+     */
+    private void assertRevealsMatchSearch(Topology topology, boolean isZeroRegionIndexed) throws Exception {
+        int edgeRevealCount = 0;
+
+        for(long seed = 0; seed < SEED_COUNT; seed++) {
+            Board board = buildBoard(topology, isZeroRegionIndexed, seed);
+            RevealEngine revealEngine = new RevealEngine(board);
+
+            for(int index = 0; index < board.getCellCount(); index++) {
+                int x = board.getXGridCoordinate(index);
+                int y = board.getYGridCoordinate(index);
+
+                if(!isBlank(board, x, y)) {
+                    continue;
+                }
+
+                int count = revealEngine.reveal(x, y);
+                int start = revealEngine.getRevealedStart();
+                int[] revealed = Arrays.copyOfRange(revealEngine.getRevealedCells(), start, start + count);
+                int[] expected = search(board, topology, index);
+
+                Arrays.sort(revealed);
+
+                Assert.assertArrayEquals("Seed " + seed + ", square " + index, expected, revealed);
+
+                if(touchesEdge(board, expected)) {
+                    edgeRevealCount++;
+                }
+            }
+        }
+
+        // Openings running into the edges are where a fill is most likely to go wrong.
+        Assert.assertTrue(edgeRevealCount > 0);
+    }
+
+    private static Board buildBoard(Topology topology, boolean isZeroRegionIndexed, long seed) throws Exception {
+        return new Board.Builder()
+                .width(WIDTH)
+                .height(HEIGHT)
+                .numMines(NUM_MINES)
+                .topology(topology)
+                .zeroRegionIndexed(isZeroRegionIndexed)
+                .seed(seed)
+                .build();
+    }
+
+    private static int[] search(MineField board, Topology topology, int startIndex) {
+        boolean[] visited = new boolean[WIDTH * HEIGHT];
+        Deque<Integer> queue = new ArrayDeque<>();
+        int[] revealed = new int[WIDTH * HEIGHT];
+        int count = 0;
+
+        visited[startIndex] = true;
+        queue.add(startIndex);
+
+        while(!queue.isEmpty()) {
+            int index = queue.remove();
+            int x = index % WIDTH;
+            int y = index / WIDTH;
+
+            revealed[count++] = index;
+
+            if(!isBlank(board, x, y)) {
+                continue;
+            }
+
+            for(int[] neighbor : getNeighbors(topology, x, y)) {
+                int neighborIndex = neighbor[1] * WIDTH + neighbor[0];
+
+                if(!visited[neighborIndex]) {
+                    visited[neighborIndex] = true;
+                    queue.add(neighborIndex);
+                }
+            }
+        }
+
+        int[] result = Arrays.copyOf(revealed, count);
+        Arrays.sort(result);
+
+        return result;
+    }
+
+    private static int[][] getNeighbors(Topology topology, int x, int y) {
+        int[][] neighbors = new int[8][];
+        int count = 0;
+
+        for(int dy = -1; dy <= 1; dy++) {
+            for(int dx = -1; dx <= 1; dx++) {
+                if(dx == 0 && dy == 0) {
+                    continue;
+                }
+
+                int nx = x + dx;
+                int ny = y + dy;
+
+                if(topology == Topology.TORUS) {
+                    nx = (nx + WIDTH) % WIDTH;
+                    ny = (ny + HEIGHT) % HEIGHT;
+                }
+                else if(topology == Topology.HEX && dy != 0) {
+                    // Odd rows are shifted right, so diagonals lean the way the row is shifted.
+                    boolean isOddRow = (y & 1) == 1;
+
+                    if(dx == (isOddRow ? -1 : 1)) {
+                        continue;
+                    }
+                }
+
+                if(nx >= 0 && ny >= 0 && nx < WIDTH && ny < HEIGHT) {
+                    neighbors[count++] = new int[]{nx, ny};
+                }
+            }
+        }
+        return Arrays.copyOf(neighbors, count);
+    }
+
+    private static boolean isBlank(MineField board, int x, int y) {
+        return !board.isMine(x, y) && board.adjacentCount(x, y) == 0;
+    }
+
+    private static boolean touchesEdge(Board board, int[] indices) {
+        for(int index : indices) {
+            int x = board.getXGridCoordinate(index);
+            int y = board.getYGridCoordinate(index);
+
+            if(x == 0 || y == 0 || x == WIDTH - 1 || y == HEIGHT - 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package com.orangemako.minesweeper.board;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VisitedBitSetTest {
+    @Test
+    public void testMarkReportsFirstVisitOnly() throws Exception {
+        VisitedBitSet visited = new VisitedBitSet(10);
+
+        Assert.assertFalse(visited.isMarked(3));
+        Assert.assertTrue(visited.mark(3));
+        Assert.assertFalse(visited.mark(3));
+        Assert.assertTrue(visited.isMarked(3));
+    }
+
+    @Test
+    public void testIndicesAcrossWordBoundaries() throws Exception {
+        // Not a multiple of 64, so the last word is only partly used.
+        VisitedBitSet visited = new VisitedBitSet(200);
+        int[] marked = {0, 63, 64, 127, 128, 199};
+
+        for(int index : marked) {
+            Assert.assertTrue(visited.mark(index));
+        }
+
+        for(int index = 0; index < 200; index++) {
+            boolean isExpected = false;
+
+            for(int expected : marked) {
+                isExpected |= expected == index;
+            }
+            Assert.assertEquals(isExpected, visited.isMarked(index));
+        }
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        VisitedBitSet visited = new VisitedBitSet(130);
+
+        visited.mark(1);
+        visited.mark(129);
+        visited.clear();
+
+        Assert.assertFalse(visited.isMarked(1));
+        Assert.assertFalse(visited.isMarked(129));
+        Assert.assertTrue(visited.mark(129));
+    }
+}
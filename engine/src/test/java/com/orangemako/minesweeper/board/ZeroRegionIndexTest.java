@@ -0,0 +1,188 @@
+package com.orangemako.minesweeper.board;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ZeroRegionIndexTest {
+    static final int WIDTH = 30;
+    static final int HEIGHT = 16;
+    static final int SEED_COUNT = 10;
+
+    @Test
+    public void testSquareRegionsMatchFloodFill() throws Exception {
+        assertRegionsMatchFloodFill(Topology.SQUARE);
+    }
+
+    @Test
+    public void testTorusRegionsMatchFloodFill() throws Exception {
+        assertRegionsMatchFloodFill(Topology.TORUS);
+    }
+
+    @Test
+    public void testHexRegionsMatchFloodFill() throws Exception {
+        assertRegionsMatchFloodFill(Topology.HEX);
+    }
+
+    @Test
+    public void testMetricsFromIndexMatchForest() throws Exception {
+        for(long seed = 0; seed < SEED_COUNT; seed++) {
+            for(Topology topology : new Topology[]{Topology.SQUARE, Topology.TORUS, Topology.HEX}) {
+                BoardMetrics indexed = buildBoard(topology, seed, true).calculateMetrics();
+                BoardMetrics unindexed = buildBoard(topology, seed, false).calculateMetrics();
+
+                Assert.assertEquals(unindexed.getOpeningCount(), indexed.getOpeningCount());
+                Assert.assertEquals(unindexed.getIsolatedNumberCount(), indexed.getIsolatedNumberCount());
+                Assert.assertEquals(unindexed.getBlankCount(), indexed.getBlankCount());
+            }
+        }
+    }
+
+    /**
+     * Labels the blank squares of seeded boards by flood fill and checks that the index puts
+     * exactly the same squares together, with the same numbered border.
+     */
+    private void assertRegionsMatchFloodFill(Topology topology) throws Exception {
+        for(long seed = 0; seed < SEED_COUNT; seed++) {
+            Board board = buildBoard(topology, seed, true);
+            ZeroRegionIndex zeroRegionIndex = board.getZeroRegionIndex();
+            NeighborTable neighborTable = board.getNeighborTable();
+
+            int[] components = new int[board.getCellCount()];
+            int componentCount = labelComponents(board, neighborTable, components);
+
+            Assert.assertEquals(componentCount, zeroRegionIndex.getRegionCount());
+
+            // Each flood fill component maps to exactly one region, and back.
+            int[] componentRegions = new int[componentCount];
+            Arrays.fill(componentRegions, ZeroRegionIndex.NO_REGION);
+            int blankCount = 0;
+
+            for(int index = 0; index < board.getCellCount(); index++) {
+                int region = zeroRegionIndex.getRegion(index);
+
+                if(components[index] == ZeroRegionIndex.NO_REGION) {
+                    Assert.assertEquals(ZeroRegionIndex.NO_REGION, region);
+                    continue;
+                }
+
+                if(componentRegions[components[index]] == ZeroRegionIndex.NO_REGION) {
+                    componentRegions[components[index]] = region;
+                }
+                Assert.assertEquals(componentRegions[components[index]], region);
+                blankCount++;
+            }
+
+            int spanBlankCount = 0;
+
+            for(int component = 0; component < componentCount; component++) {
+                int region = componentRegions[component];
+                int[] cells = zeroRegionIndex.getRegionCells();
+                int[] blanks = Arrays.copyOfRange(cells, zeroRegionIndex.getRegionStart(region),
+                        zeroRegionIndex.getBorderStart(region));
+                int[] border = Arrays.copyOfRange(cells, zeroRegionIndex.getBorderStart(region),
+                        zeroRegionIndex.getRegionEnd(region));
+
+                Arrays.sort(border);
+
+                Assert.assertArrayEquals(getBlanks(components, component), blanks);
+                Assert.assertArrayEquals(getBorder(board, neighborTable, components, component), border);
+
+                spanBlankCount += blanks.length;
+            }
+            Assert.assertEquals(blankCount, spanBlankCount);
+        }
+    }
+
+    private static Board buildBoard(Topology topology, long seed, boolean isZeroRegionIndexed) throws Exception {
+        return new Board.Builder()
+                .width(WIDTH)
+                .height(HEIGHT)
+                .numMines(60)
+                .topology(topology)
+                .zeroRegionIndexed(isZeroRegionIndexed)
+                .seed(seed)
+                .build();
+    }
+
+    private static int labelComponents(Board board, NeighborTable neighborTable, int[] components) {
+        int[] neighbors = neighborTable.getNeighbors();
+        int[] queue = new int[components.length];
+        int componentCount = 0;
+
+        Arrays.fill(components, -2);
+
+        for(int index = 0; index < components.length; index++) {
+            if(!isBlank(board, index)) {
+                components[index] = ZeroRegionIndex.NO_REGION;
+            }
+        }
+
+        for(int index = 0; index < components.length; index++) {
+            if(components[index] != -2) {
+                continue;
+            }
+
+            int head = 0;
+            int tail = 0;
+
+            components[index] = componentCount;
+            queue[tail++] = index;
+
+            while(head < tail) {
+                int square = queue[head++];
+
+                for(int k = neighborTable.getStart(square); k < neighborTable.getEnd(square); k++) {
+                    if(components[neighbors[k]] == -2) {
+                        components[neighbors[k]] = componentCount;
+                        queue[tail++] = neighbors[k];
+                    }
+                }
+            }
+            componentCount++;
+        }
+        return componentCount;
+    }
+
+    private static int[] getBlanks(int[] components, int component) {
+        int[] blanks = new int[components.length];
+        int count = 0;
+
+        for(int index = 0; index < components.length; index++) {
+            if(components[index] == component) {
+                blanks[count++] = index;
+            }
+        }
+        return Arrays.copyOf(blanks, count);
+    }
+
+    private static int[] getBorder(Board board, NeighborTable neighborTable, int[] components, int component) {
+        boolean[] isBorder = new boolean[components.length];
+        int[] neighbors = neighborTable.getNeighbors();
+
+        for(int index = 0; index < components.length; index++) {
+            if(components[index] == component) {
+                for(int k = neighborTable.getStart(index); k < neighborTable.getEnd(index); k++) {
+                    if(!isBlank(board, neighbors[k])) {
+                        isBorder[neighbors[k]] = true;
+                    }
+                }
+            }
+        }
+
+        int[] border = new int[components.length];
+        int count = 0;
+
+        for(int index = 0; index < components.length; index++) {
+            if(isBorder[index]) {
+                border[count++] = index;
+            }
+        }
+        return Arrays.copyOf(border, count);
+    }
+
+    private static boolean isBlank(Board board, int index) {
+        return !board.isMine(index) && board.adjacentCount(index) == 0;
+    }
+}
@@ -0,0 +1,615 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.Board;
+import com.orangemako.minesweeper.board.EndlessBoard;
+import com.orangemako.minesweeper.board.SparseBoard;
+import com.orangemako.minesweeper.random.RandomSource;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GameEngineTest {
+    Board board;
+    GameEngine engine;
+
+    int deltaCount;
+    int changedCount;
+    int flagsRemaining;
+    int finishCount;
+    int resumeCount;
+    boolean didWin;
+
+    @Before
+    public void setUp() throws Exception {
+        board = new Board.Builder().width(9).height(9).numMines(10).seed(42).deferred(true).build();
+        engine = new GameEngine(board, new GameEngine.Listener() {
+            @Override
+            public void onBoardChanged(BoardDelta delta) {
+                deltaCount++;
+                changedCount += delta.getChangedCount();
+
+                if(delta.hasFlagsRemainingChanged()) {
+                    flagsRemaining = delta.getMineFlagsRemainingCount();
+                }
+
+                switch(delta.getResult()) {
+                    case BoardDelta.WON:
+                    case BoardDelta.LOST:
+                        finishCount++;
+                        didWin = delta.getResult() == BoardDelta.WON;
+                        break;
+                    case BoardDelta.RESUMED:
+                        resumeCount++;
+                        break;
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testFirstUncoverIsSafe() throws Exception {
+        engine.uncover(4, 4);
+
+        Assert.assertTrue(board.isGenerated());
+        Assert.assertFalse(board.isMine(4, 4));
+        Assert.assertEquals(0, board.adjacentCount(4, 4));
+        Assert.assertEquals(GameEngine.UNCOVERED, engine.getState(4, 4));
+        Assert.assertTrue(changedCount > 1);
+    }
+
+    @Test
+    public void testToggleFlag() throws Exception {
+        engine.toggleFlag(0, 0);
+
+        Assert.assertEquals(GameEngine.FLAGGED_AS_MINE, engine.getState(0, 0));
+        Assert.assertEquals(9, flagsRemaining);
+
+        engine.toggleFlag(0, 0);
+
+        Assert.assertEquals(GameEngine.COVERED, engine.getState(0, 0));
+        Assert.assertEquals(10, flagsRemaining);
+    }
+
+    @Test
+    public void testFlagNeverUnflags() throws Exception {
+        engine.flag(0, 0);
+        engine.flag(0, 0);
+
+        Assert.assertEquals(GameEngine.FLAGGED_AS_MINE, engine.getState(0, 0));
+        Assert.assertEquals(9, flagsRemaining);
+
+        engine.undo();
+
+        Assert.assertEquals(GameEngine.COVERED, engine.getState(0, 0));
+    }
+
+    @Test
+    public void testUncoveringEverySafeSquareWins() throws Exception {
+        engine.uncover(4, 4);
+
+        for(int y = 0; y < board.getHeight(); y++) {
+            for(int x = 0; x < board.getWidth(); x++) {
+                if(!board.isMine(x, y)) {
+                    engine.uncover(x, y);
+                }
+            }
+        }
+
+        Assert.assertTrue(engine.isGameFinished());
+        Assert.assertEquals(1, finishCount);
+        Assert.assertTrue(didWin);
+    }
+
+    @Test
+    public void testUncoveringMineLoses() throws Exception {
+        engine.uncover(4, 4);
+
+        int deltasBefore = deltaCount;
+
+        for(int index = 0; index < board.getCellCount(); index++) {
+            if(board.isMine(index)) {
+                engine.uncover(board.getXGridCoordinate(index), board.getYGridCoordinate(index));
+                break;
+            }
+        }
+
+        // The mine, the revealed board and the result arrive together.
+        Assert.assertEquals(deltasBefore + 1, deltaCount);
+        Assert.assertTrue(engine.isGameFinished());
+        Assert.assertEquals(1, finishCount);
+        Assert.assertFalse(didWin);
+        Assert.assertEquals(GameEngine.UNCOVERED, engine.getState(0, 0));
+    }
+
+    @Test
+    public void testChordUncoversUnflaggedNeighbors() throws Exception {
+        engine.uncover(4, 4);
+
+        // Find an uncovered number and flag its mines.
+        for(int index = 0; index < board.getCellCount(); index++) {
+            int x = board.getXGridCoordinate(index);
+            int y = board.getYGridCoordinate(index);
+
+            if(engine.getState(index) == GameEngine.UNCOVERED && board.adjacentCount(index) > 0) {
+                for(int dy = -1; dy <= 1; dy++) {
+                    for(int dx = -1; dx <= 1; dx++) {
+                        int nx = x + dx;
+                        int ny = y + dy;
+
+                        if(nx >= 0 && ny >= 0 && nx < board.getWidth() && ny < board.getHeight()
+                                && board.isMine(nx, ny) && engine.getState(nx, ny) == GameEngine.COVERED) {
+                            engine.toggleFlag(nx, ny);
+                        }
+                    }
+                }
+                engine.chord(x, y);
+
+                for(int dy = -1; dy <= 1; dy++) {
+                    for(int dx = -1; dx <= 1; dx++) {
+                        int nx = x + dx;
+                        int ny = y + dy;
+
+                        if(nx >= 0 && ny >= 0 && nx < board.getWidth() && ny < board.getHeight()) {
+                            int expectedState = board.isMine(nx, ny) ? GameEngine.FLAGGED_AS_MINE
+                                    : GameEngine.UNCOVERED;
+
+                            Assert.assertEquals(expectedState, engine.getState(nx, ny));
+                        }
+                    }
+                }
+                return;
+            }
+        }
+        Assert.fail("No uncovered number to chord.");
+    }
+
+    @Test
+    public void testUndoAndRedoLosingMove() throws Exception {
+        engine.uncover(4, 4);
+        engine.toggleFlag(0, 0);
+
+        byte[] before = new byte[board.getCellCount()];
+        engine.copyStates(before);
+
+        for(int index = 0; index < board.getCellCount(); index++) {
+            if(board.isMine(index) && engine.getState(index) == GameEngine.COVERED) {
+                engine.uncover(board.getXGridCoordinate(index), board.getYGridCoordinate(index));
+                break;
+            }
+        }
+        Assert.assertTrue(engine.isGameFinished());
+
+        byte[] after = new byte[board.getCellCount()];
+        engine.copyStates(after);
+
+        engine.undo();
+
+        byte[] undone = new byte[board.getCellCount()];
+        engine.copyStates(undone);
+
+        Assert.assertFalse(engine.isGameFinished());
+        Assert.assertEquals(1, resumeCount);
+        Assert.assertArrayEquals(before, undone);
+        Assert.assertEquals(9, engine.getMineFlagsRemainingCount());
+
+        engine.redo();
+
+        byte[] redone = new byte[board.getCellCount()];
+        engine.copyStates(redone);
+
+        Assert.assertTrue(engine.isGameFinished());
+        Assert.assertFalse(didWin);
+        Assert.assertArrayEquals(after, redone);
+    }
+
+    @Test
+    public void testMoveChangingNothingKeepsRedo() throws Exception {
+        engine.uncover(4, 4);
+
+        for(int index = 0; index < board.getCellCount(); index++) {
+            int x = board.getXGridCoordinate(index);
+            int y = board.getYGridCoordinate(index);
+
+            if(engine.getState(index) != GameEngine.UNCOVERED || board.adjacentCount(index) == 0) {
+                continue;
+            }
+
+            for(int dy = -1; dy <= 1; dy++) {
+                for(int dx = -1; dx <= 1; dx++) {
+                    int nx = x + dx;
+                    int ny = y + dy;
+
+                    if(nx >= 0 && ny >= 0 && nx < board.getWidth() && ny < board.getHeight()
+                            && board.isMine(nx, ny) && engine.getState(nx, ny) == GameEngine.COVERED) {
+                        engine.toggleFlag(nx, ny);
+                    }
+                }
+            }
+            engine.chord(x, y);
+
+            // Flag a square away from the number, then take it back.
+            for(int other = 0; other < board.getCellCount(); other++) {
+                if(engine.getState(other) == GameEngine.COVERED) {
+                    engine.toggleFlag(board.getXGridCoordinate(other), board.getYGridCoordinate(other));
+                    break;
+                }
+            }
+            engine.undo();
+
+            Assert.assertTrue(engine.canRedo());
+
+            // Every neighbor is now flagged or uncovered, so chording again changes nothing.
+            engine.chord(x, y);
+
+            Assert.assertTrue(engine.canRedo());
+
+            int flags = engine.getMineFlagsRemainingCount();
+            engine.redo();
+
+            Assert.assertEquals(flags - 1, engine.getMineFlagsRemainingCount());
+            return;
+        }
+        Assert.fail("No uncovered number to chord.");
+    }
+
+    @Test
+    public void testNewMoveDropsRedo() throws Exception {
+        engine.toggleFlag(0, 0);
+        engine.undo();
+
+        Assert.assertTrue(engine.canRedo());
+
+        engine.toggleFlag(1, 0);
+
+        Assert.assertFalse(engine.canRedo());
+        Assert.assertEquals(GameEngine.COVERED, engine.getState(0, 0));
+        Assert.assertEquals(GameEngine.FLAGGED_AS_MINE, engine.getState(1, 0));
+    }
+
+    @Test
+    public void testReplayReproducesGame() throws Exception {
+        ReplayRecorder recorder = new ReplayRecorder(board);
+        engine.setReplayRecorder(recorder);
+
+        engine.toggleFlag(8, 8);
+        engine.uncover(4, 4);
+        engine.toggleFlag(0, 8);
+        engine.undo();
+        engine.toggleFlag(8, 0);
+
+        Replay replay = Replay.fromByteArray(recorder.getReplay().toByteArray());
+        ReplayPlayer player = new ReplayPlayer(replay);
+
+        Assert.assertEquals(3, replay.getMoveCount());
+
+        player.seek(replay.getMoveCount());
+
+        byte[] expected = new byte[board.getCellCount()];
+        byte[] actual = new byte[board.getCellCount()];
+        engine.copyStates(expected);
+        player.getEngine().copyStates(actual);
+
+        Assert.assertArrayEquals(expected, actual);
+        Assert.assertEquals(engine.getMineFlagsRemainingCount(), player.getEngine().getMineFlagsRemainingCount());
+
+        player.seek(0);
+
+        Assert.assertEquals(GameEngine.COVERED, player.getEngine().getState(8, 8));
+    }
+
+    @Test
+    public void testFlagReplaysAsClick() throws Exception {
+        ReplayRecorder recorder = new ReplayRecorder(board);
+        engine.setReplayRecorder(recorder);
+
+        engine.uncover(4, 4);
+
+        int x = board.getXGridCoordinate(firstCoveredIndex());
+        int y = board.getYGridCoordinate(firstCoveredIndex());
+
+        engine.flag(x, y);
+        engine.flag(x, y);
+
+        Replay replay = Replay.fromByteArray(recorder.getReplay().toByteArray());
+        ReplayPlayer player = new ReplayPlayer(replay);
+
+        // The second flag changed nothing, and neither move ends the game.
+        Assert.assertEquals(2, replay.getMoveCount());
+
+        player.seek(replay.getMoveCount());
+
+        Assert.assertEquals(GameEngine.FLAGGED_AS_MINE, player.getEngine().getState(x, y));
+        Assert.assertFalse(player.getEngine().isGameFinished());
+    }
+
+    @Test
+    public void testSavedGameResumes() throws Exception {
+        engine.toggleFlag(8, 8);
+        engine.uncover(4, 4);
+
+        SavedGame savedGame = SavedGame.decode(SavedGame.encode(board, engine));
+        Board restoredBoard = savedGame.createBoard();
+        GameEngine restored = new GameEngine(restoredBoard, new GameEngine.Listener() {
+            @Override
+            public void onBoardChanged(BoardDelta delta) {
+                if(delta.getResult() == BoardDelta.WON || delta.getResult() == BoardDelta.LOST) {
+                    didWin = delta.getResult() == BoardDelta.WON;
+                }
+            }
+        });
+        restored.restore(savedGame);
+
+        byte[] expected = new byte[board.getCellCount()];
+        byte[] actual = new byte[board.getCellCount()];
+        engine.copyStates(expected);
+        restored.copyStates(actual);
+
+        Assert.assertArrayEquals(expected, actual);
+        Assert.assertEquals(engine.getMineFlagsRemainingCount(), restored.getMineFlagsRemainingCount());
+
+        // The same mines were placed, so uncovering every safe square still wins.
+        for(int y = 0; y < board.getHeight(); y++) {
+            for(int x = 0; x < board.getWidth(); x++) {
+                Assert.assertEquals(board.isMine(x, y), restoredBoard.isMine(x, y));
+
+                if(!restoredBoard.isMine(x, y)) {
+                    if(restored.getState(x, y) == GameEngine.FLAGGED_AS_MINE) {
+                        restored.toggleFlag(x, y);
+                    }
+                    restored.uncover(x, y);
+                }
+            }
+        }
+
+        Assert.assertTrue(restored.isGameFinished());
+        Assert.assertTrue(didWin);
+    }
+
+    @Test
+    public void testLostGameResumesWithFlagsRemaining() throws Exception {
+        engine.uncover(4, 4);
+
+        // Revealing the board on a loss shows wrong flags, so the states alone no longer tell
+        // how many flags the player had left.
+        int wrongFlagIndex = -1;
+        int mineIndex = -1;
+
+        for(int index = 0; index < board.getCellCount(); index++) {
+            if(engine.getState(index) != GameEngine.COVERED) {
+                continue;
+            }
+            if(board.isMine(index)) {
+                mineIndex = index;
+            }
+            else if(wrongFlagIndex < 0) {
+                wrongFlagIndex = index;
+            }
+        }
+        engine.toggleFlag(board.getXGridCoordinate(wrongFlagIndex), board.getYGridCoordinate(wrongFlagIndex));
+        engine.uncover(board.getXGridCoordinate(mineIndex), board.getYGridCoordinate(mineIndex));
+
+        Assert.assertTrue(engine.isGameFinished());
+        Assert.assertFalse(engine.didWin());
+
+        SavedGame savedGame = SavedGame.decode(SavedGame.encode(board, engine));
+        GameEngine restored = new GameEngine(savedGame.createBoard(), GameEngine.SILENT_LISTENER);
+        restored.restore(savedGame);
+
+        Assert.assertEquals(9, savedGame.getMineFlagsRemainingCount());
+        Assert.assertEquals(engine.getMineFlagsRemainingCount(), restored.getMineFlagsRemainingCount());
+        Assert.assertTrue(restored.isGameFinished());
+        Assert.assertFalse(restored.didWin());
+    }
+
+    @Test
+    public void testJournalRecoversGame() throws Exception {
+        File file = File.createTempFile("game", ".journal");
+        file.deleteOnExit();
+
+        GameJournal journal = GameJournal.open(file);
+        journal.start(board, engine);
+
+        engine.toggleFlag(8, 8);
+        engine.uncover(4, 4);
+        engine.toggleFlag(0, 8);
+        engine.undo();
+
+        // Reopened without closing, as after the process is killed.
+        SavedGame savedGame = GameJournal.open(file).getSavedGame();
+        GameEngine recovered = new GameEngine(savedGame.createBoard(), GameEngine.SILENT_LISTENER);
+        recovered.restore(savedGame);
+
+        byte[] expected = new byte[board.getCellCount()];
+        byte[] actual = new byte[board.getCellCount()];
+        engine.copyStates(expected);
+        recovered.copyStates(actual);
+
+        Assert.assertArrayEquals(expected, actual);
+        Assert.assertEquals(engine.getMineFlagsRemainingCount(), recovered.getMineFlagsRemainingCount());
+
+        journal.close();
+    }
+
+    @Test
+    public void testJournalReplaysUndoBeforeCompaction() throws Exception {
+        File file = File.createTempFile("game", ".journal");
+        file.deleteOnExit();
+
+        GameJournal journal = GameJournal.open(file);
+        journal.start(board, engine);
+
+        engine.uncover(4, 4);
+
+        // Enough flag moves to fill the records, so the game is compacted on a writer thread.
+        int flagIndex = firstCoveredIndex();
+
+        for(int i = 0; i < GameJournal.RECORD_CAPACITY + 10; i++) {
+            engine.toggleFlag(board.getXGridCoordinate(flagIndex), board.getYGridCoordinate(flagIndex));
+        }
+
+        // Back past the compacted position, forward again, then a new move and another undo.
+        for(int i = 0; i < 30; i++) {
+            engine.undo();
+        }
+        for(int i = 0; i < 5; i++) {
+            engine.redo();
+        }
+        engine.toggleFlag(0, 8);
+        engine.undo();
+        engine.undo();
+
+        journal.awaitCompaction();
+        assertJournalRecovers(file);
+
+        journal.close();
+    }
+
+    @Test
+    public void testJournalReplaysRedoToFinishedGame() throws Exception {
+        File file = File.createTempFile("game", ".journal");
+        file.deleteOnExit();
+
+        engine.uncover(4, 4);
+        engine.toggleFlag(board.getXGridCoordinate(firstCoveredIndex()), board.getYGridCoordinate(firstCoveredIndex()));
+
+        for(int index = 0; index < board.getCellCount(); index++) {
+            if(board.isMine(index) && engine.getState(index) == GameEngine.COVERED) {
+                engine.uncover(board.getXGridCoordinate(index), board.getYGridCoordinate(index));
+                break;
+            }
+        }
+
+        // Journaled from the lost position, so the engine's history all lies before it.
+        GameJournal journal = GameJournal.open(file);
+        journal.start(board, engine);
+
+        engine.undo();
+        engine.undo();
+        assertJournalRecovers(file);
+
+        engine.redo();
+        engine.redo();
+        Assert.assertTrue(engine.isGameFinished());
+        assertJournalRecovers(file);
+
+        journal.close();
+    }
+
+    private int firstCoveredIndex() {
+        for(int index = 0; index < board.getCellCount(); index++) {
+            if(engine.getState(index) == GameEngine.COVERED) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reopens the journal without closing it, as after the process is killed, and checks the
+     * recovered game matches the one being played.
+     */
+    private void assertJournalRecovers(File file) throws Exception {
+        SavedGame savedGame = GameJournal.open(file).getSavedGame();
+        GameEngine recovered = new GameEngine(savedGame.createBoard(), GameEngine.SILENT_LISTENER);
+        recovered.restore(savedGame);
+
+        byte[] expected = new byte[board.getCellCount()];
+        byte[] actual = new byte[board.getCellCount()];
+        engine.copyStates(expected);
+        recovered.copyStates(actual);
+
+        Assert.assertArrayEquals(expected, actual);
+        Assert.assertEquals(engine.getMineFlagsRemainingCount(), recovered.getMineFlagsRemainingCount());
+        Assert.assertEquals(engine.isGameFinished(), recovered.isGameFinished());
+        Assert.assertEquals(engine.didWin(), recovered.didWin());
+    }
+
+    @Test
+    public void testHugeSparseBoardIsPlayable() throws Exception {
+        // Every draw is zero, so the mines land on the first square and the last two.
+        RandomSource.Factory zeroSourceFactory = new RandomSource.Factory() {
+            @Override
+            public RandomSource create(long seed) {
+                return new RandomSource() {
+                    @Override
+                    public long nextLong() {
+                        return 0;
+                    }
+                };
+            }
+        };
+        SparseBoard sparseBoard = new SparseBoard.Builder()
+                .width(100000)
+                .height(100000)
+                .numMines(3)
+                .randomSourceFactory(zeroSourceFactory)
+                .build();
+        GameEngine sparseEngine = new GameEngine(sparseBoard, GameEngine.SILENT_LISTENER);
+
+        sparseEngine.uncover(1, 1);
+        Assert.assertEquals(GameEngine.UNCOVERED, sparseEngine.getState(1, 1));
+        Assert.assertEquals(GameEngine.COVERED, sparseEngine.getState(2, 2));
+
+        sparseEngine.toggleFlag(0, 0);
+        Assert.assertEquals(2, sparseEngine.getMineFlagsRemainingCount());
+
+        // The chord opens the practically endless opening beyond (1, 1), up to the reveal limit.
+        sparseEngine.chord(1, 1);
+        Assert.assertEquals(GameEngine.UNCOVERED, sparseEngine.getState(2, 2));
+        Assert.assertEquals(GameEngine.FLAGGED_AS_MINE, sparseEngine.getState(0, 0));
+        Assert.assertFalse(sparseEngine.isGameFinished());
+
+        sparseEngine.undo();
+        Assert.assertEquals(GameEngine.COVERED, sparseEngine.getState(2, 2));
+        Assert.assertTrue(sparseEngine.canRedo());
+
+        sparseEngine.redo();
+        Assert.assertEquals(GameEngine.UNCOVERED, sparseEngine.getState(2, 2));
+
+        // Losing uncovers the wrong flag, and nothing else has to be touched.
+        sparseEngine.toggleFlag(99999, 0);
+        sparseEngine.uncover(99999, 99999);
+
+        Assert.assertTrue(sparseEngine.isGameFinished());
+        Assert.assertFalse(sparseEngine.didWin());
+        Assert.assertEquals(GameEngine.UNCOVERED, sparseEngine.getState(99999, 0));
+        Assert.assertEquals(GameEngine.FLAGGED_AS_MINE, sparseEngine.getState(0, 0));
+        Assert.assertEquals(GameEngine.COVERED, sparseEngine.getState(99998, 99999));
+    }
+
+    @Test
+    public void testEndlessBoardIsPlayable() throws Exception {
+        EndlessBoard endlessBoard = new EndlessBoard.Builder().seed(5).maxCachedChunks(4).build();
+        GameEngine endlessEngine = new GameEngine(endlessBoard, GameEngine.SILENT_LISTENER);
+        int start = EndlessBoard.EXTENT / 2;
+
+        // The first uncover is blank, so it opens the region around it.
+        endlessEngine.uncover(start, start);
+
+        Assert.assertTrue(endlessBoard.isGenerated());
+        Assert.assertEquals(GameEngine.UNCOVERED, endlessEngine.getState(start + 1, start + 1));
+        Assert.assertEquals(EndlessBoard.UNLIMITED_MINES, endlessEngine.getMineFlagsRemainingCount());
+
+        // Walk away from the opening until a mine is found, flagging it, then step on the next.
+        int x = start;
+
+        while(!endlessBoard.isMine(x, start)) {
+            x++;
+        }
+        endlessEngine.toggleFlag(x, start);
+        Assert.assertEquals(EndlessBoard.UNLIMITED_MINES - 1, endlessEngine.getMineFlagsRemainingCount());
+
+        x++;
+
+        while(!endlessBoard.isMine(x, start)) {
+            x++;
+        }
+        endlessEngine.uncover(x, start);
+
+        Assert.assertTrue(endlessEngine.isGameFinished());
+        Assert.assertFalse(endlessEngine.didWin());
+    }
+}
@@ -0,0 +1,139 @@
+package com.orangemako.minesweeper.game;
+
+import com.orangemako.minesweeper.board.Board;
+import com.orangemako.minesweeper.board.EndlessBoard;
+import com.orangemako.minesweeper.board.SparseBoard;
+import com.orangemako.minesweeper.exceptions.InitializationException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GameThreadTest {
+    static final long TIMEOUT_MILLIS = 5000;
+
+    Board board;
+    GameThread gameThread;
+    AtomicInteger publishCount = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        board = buildBoard();
+        gameThread = new GameThread(board, new GameThread.Listener() {
+            @Override
+            public void onSnapshotPublished() {
+                publishCount.incrementAndGet();
+            }
+
+            @Override
+            public void onMoveFailed(InitializationException e) {
+            }
+        });
+        gameThread.start();
+    }
+
+    @After
+    public void tearDown() {
+        gameThread.quit();
+    }
+
+    @Test
+    public void testPublishesTakenLateLoseNoChanges() throws Exception {
+        GameEngine reference = new GameEngine(buildBoard(), GameEngine.SILENT_LISTENER);
+
+        // Each move is published before the next is posted, and the reader takes none of them.
+        gameThread.uncoverOrChord(4, 4);
+        reference.uncoverOrChord(4, 4);
+        awaitPublishCount(1);
+
+        int flagIndex = firstCoveredIndex(reference);
+        int x = board.getXGridCoordinate(flagIndex);
+        int y = board.getYGridCoordinate(flagIndex);
+
+        gameThread.toggleFlagOrChord(x, y);
+        reference.toggleFlagOrChord(x, y);
+        awaitPublishCount(2);
+
+        GameSnapshot snapshot = gameThread.getSnapshot();
+        boolean[] isListed = new boolean[board.getCellCount()];
+
+        for(int i = 0; i < snapshot.getChangedCount(); i++) {
+            isListed[snapshot.getChangedSquare(i)] = true;
+        }
+
+        for(int index = 0; index < board.getCellCount(); index++) {
+            Assert.assertEquals(reference.getState(index), snapshot.getState(index));
+
+            if(reference.getState(index) != GameEngine.COVERED) {
+                Assert.assertTrue(isListed[index]);
+            }
+        }
+
+        Assert.assertFalse(snapshot.isEveryStateChanged());
+        Assert.assertTrue(snapshot.getChangedCount() < board.getCellCount());
+        Assert.assertEquals(reference.getMineFlagsRemainingCount(), snapshot.getMineFlagsRemainingCount());
+
+        // Once cleared, a move lists only the squares it changed.
+        snapshot.clearChanges();
+        gameThread.toggleFlagOrChord(x, y);
+        awaitPublishCount(3);
+
+        snapshot = gameThread.getSnapshot();
+
+        Assert.assertEquals(1, snapshot.getChangedCount());
+        Assert.assertEquals(flagIndex, snapshot.getChangedSquare(0));
+        Assert.assertEquals(GameEngine.COVERED, snapshot.getState(flagIndex));
+    }
+
+    @Test(expected = InitializationException.class)
+    public void testSparseBoardIsRejected() throws Exception {
+        SparseBoard sparseBoard = new SparseBoard.Builder()
+                .width(100000)
+                .height(100000)
+                .numMines(10)
+                .build();
+
+        new GameThread(sparseBoard, gameThreadListener());
+    }
+
+    @Test(expected = InitializationException.class)
+    public void testEndlessBoardIsRejected() throws Exception {
+        new GameThread(new EndlessBoard.Builder().build(), gameThreadListener());
+    }
+
+    private static GameThread.Listener gameThreadListener() {
+        return new GameThread.Listener() {
+            @Override
+            public void onSnapshotPublished() {
+            }
+
+            @Override
+            public void onMoveFailed(InitializationException e) {
+            }
+        };
+    }
+
+    private void awaitPublishCount(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while(publishCount.get() < count) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static int firstCoveredIndex(GameEngine engine) {
+        for(int index = 0; ; index++) {
+            if(engine.getState(index) == GameEngine.COVERED) {
+                return index;
+            }
+        }
+    }
+
+    private static Board buildBoard() throws Exception {
+        return new Board.Builder().width(16).height(16).numMines(40).seed(7).deferred(true).build();
+    }
+}